@@ -94,6 +94,26 @@ tasks {
 
     }
 
+    val compileBuiltInMaps = register<JavaExec>("compileBuiltInMaps") {
+        group = "build"
+        description = "Verifies the built-in maps and compiles them to the binary map format."
+
+        val mapSources = file("src/main/resources")
+        val mapOutputs = layout.buildDirectory.dir("generated/builtInMaps")
+        inputs.files(fileTree(mapSources) { include("*.map") })
+        outputs.dir(mapOutputs)
+
+        classpath = sourceSets.main.get().output.classesDirs
+        mainClass.set("hk.ust.comp3021.BuiltInMaps")
+        argumentProviders.add(CommandLineArgumentProvider {
+            listOf(mapSources.absolutePath, mapOutputs.get().asFile.absolutePath)
+        })
+    }
+
+    processResources {
+        from(compileBuiltInMaps)
+    }
+
     create<ProGuardTask>("proguard") {
         injars(jar.flatMap { it.archiveFile })
         outjars(jar.flatMap { it.destinationDirectory.file("${project.name}-proguard.jar") })
@@ -0,0 +1,93 @@
+package hk.ust.comp3021;
+
+import hk.ust.comp3021.game.GameMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the maps bundled with the game.
+ * <p>
+ * The build verifies every built-in map and compiles it to the binary map format with {@link #main(String[])},
+ * so loading one only decodes a classpath resource, without touching the filesystem or the text parser.
+ * Loaded maps are frozen and cached, and every game state created from the same built-in map shares it.
+ */
+public final class BuiltInMaps {
+
+    /**
+     * Names of the built-in maps.
+     */
+    public static final List<String> NAMES = List.of("map00", "map01");
+
+    private static final ConcurrentHashMap<String, GameMap> CACHE = new ConcurrentHashMap<>();
+
+    private BuiltInMaps() {
+    }
+
+    /**
+     * @param name The name of a map, e.g. "map00".
+     * @return true if there is a built-in map with the name.
+     */
+    public static boolean contains(@NotNull String name) {
+        return NAMES.contains(name);
+    }
+
+    /**
+     * Get a built-in map, loading it on first use.
+     *
+     * @param name The name of the map, e.g. "map00".
+     * @return The shared, frozen game map.
+     * @throws IllegalArgumentException if there is no such built-in map.
+     */
+    public static @NotNull GameMap get(@NotNull String name) {
+        if (!contains(name)) {
+            throw new IllegalArgumentException("No such built-in map: " + name);
+        }
+        return CACHE.computeIfAbsent(name, BuiltInMaps::load);
+    }
+
+    private static GameMap load(String name) {
+        try (InputStream binary = BuiltInMaps.class.getResourceAsStream("/" + name + SokobanGameFactory.BINARY_MAP_EXTENSION)) {
+            if (binary != null) {
+                return GameMap.fromBinary(ByteBuffer.wrap(binary.readAllBytes())).freeze();
+            }
+            // Not compiled, e.g. when running from the IDE without the Gradle build.
+            try (InputStream text = BuiltInMaps.class.getResourceAsStream("/" + name + ".map")) {
+                if (text == null) {
+                    throw new IllegalArgumentException("Error loading map: " + name);
+                }
+                return GameMap.parse(new String(text.readAllBytes(), StandardCharsets.UTF_8)).freeze();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error loading map: " + name, e);
+        }
+    }
+
+    /**
+     * Build-time entry point that verifies the built-in maps and compiles them to the binary map format.
+     *
+     * @param args The directory holding the ".map" files, and the directory to write the binary maps to.
+     * @throws IOException When there is an issue reading or writing the maps.
+     */
+    public static void main(@NotNull String[] args) throws IOException {
+        final var sourceDir = Path.of(args[0]);
+        final var outputDir = Files.createDirectories(Path.of(args[1]));
+        for (String name : NAMES) {
+            final GameMap gameMap;
+            try {
+                gameMap = SokobanGameFactory.loadGameMap(sourceDir.resolve(name + ".map"));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid built-in map " + name + ": " + e.getMessage(), e);
+            }
+            SokobanGameFactory.writeBinaryGameMap(gameMap, outputDir.resolve(name + SokobanGameFactory.BINARY_MAP_EXTENSION));
+        }
+    }
+}
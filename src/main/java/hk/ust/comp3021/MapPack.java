@@ -0,0 +1,195 @@
+package hk.ust.comp3021;
+
+import hk.ust.comp3021.game.GameMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A single file holding many levels in the text format accepted by {@link GameMap#parse(String)}.
+ * <p>
+ * The file starts with a header and an index of level offsets, followed by the text of every level:
+ * <li>The magic number {@link #MAGIC} and the format version {@link #VERSION}.</li>
+ * <li>The number of levels {@code n} as an int.</li>
+ * <li>{@code n + 1} longs, where level {@code i} spans the bytes between offsets {@code i} and {@code i + 1}.</li>
+ * <li>The UTF-8 text of each level.</li>
+ * <p>
+ * Opening a pack only reads the header and the index, and each level is read and parsed on demand.
+ */
+public final class MapPack implements Closeable, Iterable<GameMap> {
+
+    /**
+     * File extension of map packs.
+     */
+    public static final String EXTENSION = ".spack";
+
+    /**
+     * Magic number at the start of a map pack, the ASCII text "SPAK".
+     */
+    public static final int MAGIC = 0x5350414B;
+
+    /**
+     * Version of the map pack format.
+     */
+    public static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + Integer.BYTES;
+
+    private final FileChannel channel;
+
+    private final long[] offsets;
+
+    private MapPack(FileChannel channel, long[] offsets) {
+        this.channel = channel;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Open a map pack, reading its index.
+     *
+     * @param packFile The map pack file.
+     * @return The opened map pack, which must be closed after use.
+     * @throws IOException When there is an issue reading the file.
+     * @throws IllegalArgumentException if the file is not a valid map pack.
+     */
+    public static @NotNull MapPack open(@NotNull Path packFile) throws IOException {
+        final var channel = FileChannel.open(packFile, StandardOpenOption.READ);
+        try {
+            final var header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.get() != VERSION) {
+                throw new IllegalArgumentException("not a map pack: " + packFile);
+            }
+            final int count = header.getInt();
+            if (count < 0 || count >= (channel.size() - HEADER_SIZE) / Long.BYTES) {
+                throw new IllegalArgumentException("corrupted map pack index: " + packFile);
+            }
+            final var index = readFully(channel, HEADER_SIZE, (count + 1) * Long.BYTES);
+            final long[] offsets = new long[count + 1];
+            for (int i = 0; i <= count; i++) {
+                offsets[i] = index.getLong();
+                if (offsets[i] > channel.size() || i > 0 && offsets[i] < offsets[i - 1]) {
+                    throw new IllegalArgumentException("corrupted map pack index: " + packFile);
+                }
+            }
+            return new MapPack(channel, offsets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build a map pack from level texts.
+     * Every level is validated with {@link GameMap#parse(String)} before being written.
+     *
+     * @param packFile The file to write the map pack to.
+     * @param levels   The text of every level, in order.
+     * @throws IOException When there is an issue writing the file.
+     * @throws IllegalArgumentException if a level is not a valid map.
+     */
+    public static void build(@NotNull Path packFile, @NotNull List<String> levels) throws IOException {
+        try (var channel = FileChannel.open(packFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var index = ByteBuffer.allocate(HEADER_SIZE + (levels.size() + 1) * Long.BYTES);
+            index.putInt(MAGIC).put(VERSION).putInt(levels.size());
+            long offset = index.capacity();
+            channel.position(offset);
+            for (int i = 0; i < levels.size(); i++) {
+                final String level = levels.get(i);
+                try {
+                    GameMap.parse(level);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("invalid level " + i + ": " + e.getMessage(), e);
+                }
+                index.putLong(offset);
+                final var bytes = ByteBuffer.wrap(level.getBytes(StandardCharsets.UTF_8));
+                offset += bytes.remaining();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            index.putLong(offset).flip();
+            long position = 0;
+            while (index.hasRemaining()) {
+                position += channel.write(index, position);
+            }
+        }
+    }
+
+    /**
+     * @return The number of levels in the pack.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Read and parse a single level, without touching the other levels.
+     *
+     * @param level The index of the level, starting from 0.
+     * @return The parsed game map.
+     * @throws IOException When there is an issue reading the file.
+     * @throws IndexOutOfBoundsException if there is no such level.
+     */
+    public @NotNull GameMap loadLevel(int level) throws IOException {
+        if (level < 0 || level >= size()) {
+            throw new IndexOutOfBoundsException("no level " + level + " in a pack of " + size());
+        }
+        final var bytes = readFully(channel, offsets[level], (int) (offsets[level + 1] - offsets[level]));
+        return GameMap.parse(StandardCharsets.UTF_8.decode(bytes));
+    }
+
+    /**
+     * Walk the levels in order, reading and parsing each one only when it is reached.
+     *
+     * @return A lazy iterator over the levels, throwing {@link UncheckedIOException} if reading fails.
+     */
+    @Override
+    public @NotNull Iterator<GameMap> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size();
+            }
+
+            @Override
+            public GameMap next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return loadLevel(next++);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        final var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("unexpected end of map pack");
+            }
+        }
+        return buffer.flip();
+    }
+}
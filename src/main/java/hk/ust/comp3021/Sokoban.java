@@ -1,8 +1,12 @@
 package hk.ust.comp3021;
 
+import hk.ust.comp3021.game.SokobanGame;
+import hk.ust.comp3021.replay.ReplaySokobanGame;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * The holder of the entry point of the game.
@@ -12,7 +16,9 @@ public class Sokoban {
     /**
      * The entry point of the program.
      *
-     * @param args The command line args.
+     * @param args The command line args: the map file, followed by the level index when the map file is a {@link MapPack}
+     *             (the first level by default), or by {@code --replay} and a file of recorded actions, optionally
+     *             followed by the number of steps to replay.
      */
     public static void main(@NotNull String[] args) {
         if (args.length < 1) {
@@ -20,12 +26,51 @@ public class Sokoban {
             System.exit(1);
         }
         final var mapFile = args[0];
+        final SokobanGame game;
         try {
-            final var game = SokobanGameFactory.createTUIGame(mapFile);
-            game.run();
-        } catch (IOException e) {
+            if (args.length > 1 && args[1].equals("--replay")) {
+                if (args.length < 3) {
+                    System.err.println("Replay file is not provided.");
+                    System.exit(1);
+                }
+                final var replayFile = Path.of(args[2]);
+                if (!Files.isRegularFile(replayFile)) {
+                    System.err.println("Replay file does not exist: " + replayFile);
+                    System.exit(1);
+                }
+                final long untilStep = args.length > 3
+                    ? parseNumber(args[3], "number of steps", Long.MAX_VALUE)
+                    : ReplaySokobanGame.UNTIL_END;
+                game = SokobanGameFactory.createReplayGame(mapFile, replayFile, untilStep);
+            } else if (args.length > 1) {
+                final int level = (int) parseNumber(args[1], "level index", Integer.MAX_VALUE);
+                game = SokobanGameFactory.createTUIGame(mapFile, level);
+            } else {
+                game = SokobanGameFactory.createTUIGame(mapFile);
+            }
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            // Unreadable files, files that are not maps or map packs, and levels missing from a pack.
             System.err.println("Failed to load game map: " + e);
             System.exit(1);
+            return;
         }
+        game.run();
+    }
+
+    /**
+     * Parse a number from 0 to {@code max} given on the command line, or exit with an error if it is not one.
+     */
+    private static long parseNumber(String arg, String name, long max) {
+        try {
+            final long number = Long.parseLong(arg);
+            if (number >= 0 && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        System.err.println("Invalid " + name + ": " + arg);
+        System.exit(1);
+        return 0;
     }
 }
@@ -2,60 +2,184 @@ package hk.ust.comp3021;
 
 import hk.ust.comp3021.game.GameMap;
 import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.RenderingEngine;
 import hk.ust.comp3021.game.SokobanGame;
+import hk.ust.comp3021.game.Viewport;
+import hk.ust.comp3021.replay.ReplayInputEngine;
+import hk.ust.comp3021.replay.ReplaySokobanGame;
+import hk.ust.comp3021.tui.AsyncRenderingEngine;
 import hk.ust.comp3021.tui.TerminalInputEngine;
 import hk.ust.comp3021.tui.TerminalRenderingEngine;
+import hk.ust.comp3021.tui.TerminalSizeWatcher;
 import hk.ust.comp3021.tui.TerminalSokobanGame;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Factory for creating Sokoban games
  */
 public class SokobanGameFactory {
 
+    /**
+     * File extension of maps in the binary format, see {@link GameMap#fromBinary(ByteBuffer)}.
+     */
+    public static final String BINARY_MAP_EXTENSION = ".smap";
+
+    /**
+     * Size of the window used for maps that do not fit in a standard terminal.
+     */
+    private static final int VIEWPORT_WIDTH = 80;
+
+    private static final int VIEWPORT_HEIGHT = 20;
+
+    /**
+     * Frame rate cap of the render thread used on an interactive terminal.
+     */
+    private static final int MAX_FRAMES_PER_SECOND = 60;
+
     /**
      * Create a TUI version of the Sokoban game.
      *
-     * @param mapFile map file.
+     * @param mapFile map file, {@link MapPack} file to play its first level, or built-in map name.
      * @return The Sokoban game.
      * @throws IOException if mapFile cannot be load
      */
     public static @NotNull SokobanGame createTUIGame(@NotNull String mapFile) throws IOException {
-        Path file;
-        if (!mapFile.endsWith(".map")) {
+        return createTUIGame(loadNamedGameMap(mapFile));
+    }
+
+    /**
+     * Create a game replaying recorded actions without rendering the intermediate states,
+     * see {@link ReplayInputEngine} for the accepted formats.
+     * The final state and a summary are printed to the terminal.
+     *
+     * @param mapFile    map file or built-in map name, as for {@link #createTUIGame(String)}.
+     * @param replayFile file of recorded actions.
+     * @param untilStep  number of actions to replay, or {@link ReplaySokobanGame#UNTIL_END}.
+     * @return The Sokoban game.
+     * @throws IOException if the map or the replay file cannot be load
+     */
+    public static @NotNull SokobanGame createReplayGame(@NotNull String mapFile, @NotNull Path replayFile, long untilStep)
+        throws IOException {
+        final var gameMap = loadNamedGameMap(mapFile);
+        return new ReplaySokobanGame(
+            new GameState(gameMap),
+            ReplayInputEngine.open(replayFile),
+            new TerminalRenderingEngine(System.out),
+            untilStep
+        );
+    }
+
+    private static @NotNull GameMap loadNamedGameMap(@NotNull String mapFile) throws IOException {
+        if (mapFile.endsWith(MapPack.EXTENSION)) {
+            // without a level index, play the first level of the pack
+            return loadGameMap(Path.of(mapFile), 0);
+        }
+        if (!mapFile.endsWith(".map") && !mapFile.endsWith(BINARY_MAP_EXTENSION)) {
             // treat as built-in maps
-            final var resource = SokobanGameFactory.class.getClassLoader().getResource(mapFile + ".map");
-            if (resource == null) throw new RuntimeException("No such built-in map: " + mapFile);
-            try {
-                file = Path.of(resource.toURI());
-            } catch (URISyntaxException e) {
-                throw new RuntimeException("Error loading map:" + mapFile);
-            }
-        } else {
-            file = Path.of(mapFile);
+            if (!BuiltInMaps.contains(mapFile)) throw new IllegalArgumentException("No such built-in map: " + mapFile);
+            return BuiltInMaps.get(mapFile);
+        }
+        return loadGameMap(Path.of(mapFile));
+    }
+
+    /**
+     * Create a TUI version of the Sokoban game from one level of a {@link MapPack}.
+     *
+     * @param packFile map pack file.
+     * @param level    index of the level in the pack, starting from 0.
+     * @return The Sokoban game.
+     * @throws IOException if the level cannot be load
+     */
+    public static @NotNull SokobanGame createTUIGame(@NotNull String packFile, int level) throws IOException {
+        return createTUIGame(loadGameMap(Path.of(packFile), level));
+    }
+
+    private static @NotNull SokobanGame createTUIGame(@NotNull GameMap gameMap) {
+        // Only redraw changed cells on an interactive terminal, pipes get plain full frames.
+        final boolean interactive = System.console() != null;
+        final var terminalRenderingEngine = new TerminalRenderingEngine(System.out, interactive);
+        if (interactive) {
+            // Redraw the whole frame after the terminal is resized.
+            TerminalSizeWatcher.start(terminalRenderingEngine);
+        }
+        // Draw on a separate thread on an interactive terminal, so a slow terminal does not hold up the game.
+        // Pipes get every frame in order.
+        final RenderingEngine renderingEngine = interactive
+            ? new AsyncRenderingEngine(terminalRenderingEngine, MAX_FRAMES_PER_SECOND)
+            : terminalRenderingEngine;
+        if (gameMap.getMaxWidth() > VIEWPORT_WIDTH || gameMap.getMaxHeight() > VIEWPORT_HEIGHT) {
+            // Follow the player with the smallest id.
+            final int playerId = gameMap.getPlayerIds().stream().min(Integer::compare).orElse(0);
+            renderingEngine.setViewport(new Viewport(VIEWPORT_WIDTH, VIEWPORT_HEIGHT, playerId));
         }
-        final var gameMap = loadGameMap(file);
         return new TerminalSokobanGame(
             new GameState(gameMap),
             new TerminalInputEngine(System.in),
-            new TerminalRenderingEngine(System.out)
+            renderingEngine
         );
     }
 
 
     /**
+     * Files ending with {@link #BINARY_MAP_EXTENSION} are loaded as binary maps, other files are parsed as text.
+     *
      * @param mapFile The file containing the game map.
      * @return The parsed game map.
      * @throws IOException When there is an issue loading the file.
      */
     public static @NotNull GameMap loadGameMap(@NotNull Path mapFile) throws IOException {
+        if (mapFile.toString().endsWith(BINARY_MAP_EXTENSION)) {
+            return loadBinaryGameMap(mapFile);
+        }
         final var fileContent = Files.readString(mapFile);
         return GameMap.parse(fileContent);
     }
 
+    /**
+     * @param packFile The map pack file.
+     * @param level    Index of the level in the pack, starting from 0.
+     * @return The parsed game map.
+     * @throws IOException When there is an issue loading the file.
+     */
+    public static @NotNull GameMap loadGameMap(@NotNull Path packFile, int level) throws IOException {
+        try (var pack = MapPack.open(packFile)) {
+            return pack.loadLevel(level);
+        }
+    }
+
+    /**
+     * @param mapFile The file containing the game map in the binary format.
+     * @return The loaded game map.
+     * @throws IOException When there is an issue loading the file.
+     */
+    public static @NotNull GameMap loadBinaryGameMap(@NotNull Path mapFile) throws IOException {
+        try (var channel = FileChannel.open(mapFile, StandardOpenOption.READ)) {
+            return GameMap.fromBinary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write a game map in the binary format, so that it can later be loaded without parsing.
+     *
+     * @param gameMap The game map to write.
+     * @param mapFile The file to write to.
+     * @throws IOException When there is an issue writing the file.
+     */
+    public static void writeBinaryGameMap(@NotNull GameMap gameMap, @NotNull Path mapFile) throws IOException {
+        try (var channel = FileChannel.open(mapFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            final var buffer = gameMap.toBinary();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
 }
@@ -1,6 +1,7 @@
 package hk.ust.comp3021.actions;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * The result of an action.
@@ -28,11 +29,30 @@ public abstract sealed class ActionResult {
      */
     public static final class Success extends ActionResult {
 
+        @Nullable
+        private final String warning;
+
         /**
          * @param action The action.
          */
         public Success(@NotNull Action action) {
+            this(action, null);
+        }
+
+        /**
+         * @param action  The action.
+         * @param warning A warning to show the players although the action succeeded, or null if there is none.
+         */
+        public Success(@NotNull Action action, @Nullable String warning) {
             super(action);
+            this.warning = warning;
+        }
+
+        /**
+         * @return The warning to show the players, or null if there is none.
+         */
+        public @Nullable String getWarning() {
+            return warning;
         }
     }
 
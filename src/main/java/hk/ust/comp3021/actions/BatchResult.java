@@ -0,0 +1,19 @@
+package hk.ust.comp3021.actions;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The result of a batch of actions, which stops at the first failure or {@link Exit}.
+ *
+ * @param applied      The number of actions applied successfully, including a final {@link Exit}.
+ * @param firstFailure The failure that stopped the batch, or null if no action failed.
+ */
+public record BatchResult(int applied, @Nullable ActionResult.Failed firstFailure) {
+
+    /**
+     * @return Whether no action in the batch failed.
+     */
+    public boolean isSuccess() {
+        return firstFailure == null;
+    }
+}
@@ -19,6 +19,16 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
      */
     public abstract @NotNull Position nextPosition(@NotNull Position currentPosition);
 
+    /**
+     * @return The horizontal displacement of the move, i.e. {@code nextPosition(p).x() - p.x()}.
+     */
+    public abstract int getDx();
+
+    /**
+     * @return The vertical displacement of the move, i.e. {@code nextPosition(p).y() - p.y()}.
+     */
+    public abstract int getDy();
+
     /**
      * The action of moving down.
      */
@@ -36,6 +46,16 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             // TODO
             return Position.of(currentPosition.x(), currentPosition.y()+1);
         }
+
+        @Override
+        public int getDx() {
+            return 0;
+        }
+
+        @Override
+        public int getDy() {
+            return 1;
+        }
     }
 
     /**
@@ -54,6 +74,16 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             // TODO
             return Position.of(currentPosition.x()-1, currentPosition.y());
         }
+
+        @Override
+        public int getDx() {
+            return -1;
+        }
+
+        @Override
+        public int getDy() {
+            return 0;
+        }
     }
 
     /**
@@ -72,6 +102,16 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             // TODO
             return Position.of(currentPosition.x()+1, currentPosition.y());
         }
+
+        @Override
+        public int getDx() {
+            return 1;
+        }
+
+        @Override
+        public int getDy() {
+            return 0;
+        }
     }
 
     /**
@@ -90,6 +130,16 @@ public abstract sealed class Move extends Action permits Move.Down, Move.Left, M
             // TODO
             return Position.of(currentPosition.x(), currentPosition.y()-1);
         }
+
+        @Override
+        public int getDx() {
+            return 0;
+        }
+
+        @Override
+        public int getDy() {
+            return -1;
+        }
     }
 }
 
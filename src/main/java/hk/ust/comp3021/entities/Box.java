@@ -4,6 +4,14 @@ package hk.ust.comp3021.entities;
  * Denotes a box.
  */
 public final class Box extends Entity {
+    private static final Box[] CACHE = new Box[26];
+
+    static {
+        for (int id = 0; id < CACHE.length; id++) {
+            CACHE[id] = new Box(id);
+        }
+    }
+
     private final int playerId;
 
     /**
@@ -23,4 +31,18 @@ public final class Box extends Entity {
     public int getPlayerId() {
         return playerId;
     }
+
+    /**
+     * Get the canonical box movable by the given player.
+     * Boxes with player ids 0 to 25 are cached, others are created on demand.
+     *
+     * @param playerId the id of the player that can move the box.
+     * @return a box entity.
+     */
+    public static Box of(int playerId) {
+        if (playerId >= 0 && playerId < CACHE.length) {
+            return CACHE[playerId];
+        }
+        return new Box(playerId);
+    }
 }
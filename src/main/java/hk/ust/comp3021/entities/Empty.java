@@ -4,4 +4,16 @@ package hk.ust.comp3021.entities;
  * Denote an empty cell.
  */
 public final class Empty extends Entity {
+
+    private static final Empty INSTANCE = new Empty();
+
+    /**
+     * Get the shared empty cell instance.
+     * Empty cells carry no state, so a single instance can stand for every empty cell.
+     *
+     * @return the canonical empty cell.
+     */
+    public static Empty instance() {
+        return INSTANCE;
+    }
 }
@@ -4,6 +4,14 @@ package hk.ust.comp3021.entities;
  * Denotes a player.
  */
 public final class Player extends Entity {
+    private static final Player[] CACHE = new Player[26];
+
+    static {
+        for (int id = 0; id < CACHE.length; id++) {
+            CACHE[id] = new Player(id);
+        }
+    }
+
     private final int id;
 
     /**
@@ -23,4 +31,18 @@ public final class Player extends Entity {
     public int getId() {
         return id;
     }
+
+    /**
+     * Get the canonical player with the given id.
+     * Players with ids 0 to 25 are cached, others are created on demand.
+     *
+     * @param id id of the player.
+     * @return a player entity.
+     */
+    public static Player of(int id) {
+        if (id >= 0 && id < CACHE.length) {
+            return CACHE[id];
+        }
+        return new Player(id);
+    }
 }
@@ -4,4 +4,16 @@ package hk.ust.comp3021.entities;
  * Denotes a wall.
  */
 public final class Wall extends Entity {
+
+    private static final Wall INSTANCE = new Wall();
+
+    /**
+     * Get the shared wall instance.
+     * Walls carry no state, so a single instance can stand for every wall.
+     *
+     * @return the canonical wall.
+     */
+    public static Wall instance() {
+        return INSTANCE;
+    }
 }
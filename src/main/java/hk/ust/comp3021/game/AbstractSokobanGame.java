@@ -2,17 +2,16 @@ package hk.ust.comp3021.game;
 
 import hk.ust.comp3021.actions.Action;
 import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.BatchResult;
 import hk.ust.comp3021.actions.Move;
-import hk.ust.comp3021.entities.Box;
-import hk.ust.comp3021.entities.Empty;
-import hk.ust.comp3021.entities.Player;
-import hk.ust.comp3021.entities.Wall;
 import org.jetbrains.annotations.NotNull;
 
 import hk.ust.comp3021.actions.Exit;
 import hk.ust.comp3021.actions.Undo;
 import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.utils.StringResources;
 
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -22,175 +21,156 @@ public abstract class AbstractSokobanGame implements SokobanGame {
     @NotNull
     protected final GameState state;
 
+    /**
+     * Whether successful moves skip their checkpoint, while a batch records a single one, see {@link #processActions(List, boolean)}.
+     */
+    private boolean deferCheckpoint;
+
+    @NotNull
+    private TrainingMode trainingMode = TrainingMode.OFF;
+
+    private boolean stopWhenDeadlocked;
+
     protected AbstractSokobanGame(@NotNull GameState gameState) {
         this.state = gameState;
     }
 
+    /**
+     * Set how pushes leaving a box on a dead square are treated. Training is off by default.
+     *
+     * @param trainingMode The training mode.
+     */
+    public void setTrainingMode(@NotNull TrainingMode trainingMode) {
+        this.trainingMode = trainingMode;
+    }
+
+    /**
+     * @return The training mode.
+     */
+    public @NotNull TrainingMode getTrainingMode() {
+        return trainingMode;
+    }
+
+    /**
+     * Set whether the game stops as soon as it can no longer be won, see {@link GameState#isDeadlocked()}.
+     * This is off by default, so that players may still undo.
+     *
+     * @param stopWhenDeadlocked Whether to stop when deadlocked.
+     */
+    public void setStopWhenDeadlocked(boolean stopWhenDeadlocked) {
+        this.stopWhenDeadlocked = stopWhenDeadlocked;
+    }
+
+    /**
+     * @return Whether the game stops as soon as it can no longer be won.
+     */
+    public boolean isStopWhenDeadlocked() {
+        return stopWhenDeadlocked;
+    }
+
     /**
      * @return True is the game should stop running.
-     * For example when the user specified to exit the game or the user won the game.
+     * For example when the user specified to exit the game or the user won the game,
+     * or the game can no longer be won if {@link #setStopWhenDeadlocked(boolean)} is on.
      */
     protected boolean shouldStop() {
         // TODO
-        return state.isWin();
+        return state.isWin() || stopWhenDeadlocked && state.isDeadlocked();
     }
 
     /**
-     * @param action The action received from the user.
-     * @return The result of the action.
+     * Apply a batch of actions back to back, stopping at the first failure or {@link Exit}.
+     * The actions applied before a failure are kept.
+     *
+     * @param actions          The actions to apply in order.
+     * @param singleCheckpoint Whether to record a single checkpoint after the batch instead of one per move,
+     *                         so that an undo reverts the whole batch. An {@link Undo} within such a batch
+     *                         reverts the moves of the batch applied before it.
+     * @return The number of applied actions and the first failure.
      */
-    protected ActionResult processAction(@NotNull Action action) {
-        // TODO
-        if (action instanceof Move m && Objects.requireNonNull(state.getPlayerPositionById(m.getInitiator())).x() == -10000 && Objects.requireNonNull(state.getPlayerPositionById(m.getInitiator())).y() == -10000){
-            return new ActionResult.Failed(action, "Player not found.\n");
-        }
-        return switch (action){
-            case Move.Down d ->{
-                Position player_pos = state.getPlayerPositionById(d.getInitiator());
-                Position down = Position.of(player_pos.x(), player_pos.y()+1);
-                if (state.getEntity(down) instanceof Wall){
-                    yield new ActionResult.Failed(action,"You hit a wall.\n");
-                }
-                else if(state.getEntity(down) instanceof Box){
-                    Position check = Position.of(player_pos.x(), player_pos.y()+2);
-                    if (state.getEntity(check) instanceof Box || state.getEntity(check) instanceof Wall || state.getEntity(check) instanceof Player){
-                        yield new ActionResult.Failed(action,"Failed to push the box.\n");
-                    }
-
-                    else if(state.getEntity(check) instanceof Empty){
-                        state.move(down, Position.of(down.x(), down.y()+1));
-                        state.move(player_pos, Position.of(player_pos.x(), player_pos.y()+1));
-                        state.checkpoint();
-                        System.out.println(state.getEntity(Position.of(down.x(), down.y()+1)));
-                        yield new ActionResult.Success(action);
-                    }
-
-                    else{
-                        throw new IllegalArgumentException("This branch should not be reached");
-                    }
-                }
-
-                else if(state.getAllPlayerPositions().contains(down)){
-                    yield new ActionResult.Failed(action,"You hit another player.\n");
-                }
-
-                else if(state.getEntity(down) instanceof Empty){
-                    state.move(player_pos, Position.of(player_pos.x(), player_pos.y()+1));
-                    state.checkpoint();
-                    yield new ActionResult.Success(action);
-                }
-                else{
-                    throw new IllegalArgumentException("This branch should not be reached");
+    protected BatchResult processActions(@NotNull List<? extends Action> actions, boolean singleCheckpoint) {
+        int applied = 0;
+        ActionResult.Failed firstFailure = null;
+        deferCheckpoint = singleCheckpoint;
+        try {
+            for (final Action action : actions) {
+                if (processAction(action) instanceof ActionResult.Failed failed) {
+                    firstFailure = failed;
+                    break;
+                }
+                applied++;
+                if (action instanceof Exit) {
+                    break;
                 }
             }
+        } finally {
+            deferCheckpoint = false;
+        }
+        if (singleCheckpoint && applied > 0) {
+            state.checkpoint();
+        }
+        return new BatchResult(applied, firstFailure);
+    }
 
-            case Move.Left l -> {
-                Position player_pos = state.getPlayerPositionById(l.getInitiator());
-                Position left = Position.of(player_pos.x()-1, player_pos.y());
-                if (state.getEntity(left) instanceof Wall){
-                    yield new ActionResult.Failed(action,"You hit a wall.\n");
-                }
-                else if(state.getEntity(left) instanceof Box){
-                    Position check = Position.of(player_pos.x()-2, player_pos.y());
-                    if (state.getEntity(check) instanceof Box || state.getEntity(check) instanceof Wall || state.getEntity(check) instanceof Player){
-                        yield new ActionResult.Failed(action,"Failed to push the box.\n");
-                    }
-                    else if(state.getEntity(check) instanceof Empty){
-                        state.move(left, Position.of(left.x()-1, left.y()));
-                        state.move(player_pos, Position.of(player_pos.x()-1, player_pos.y()));
-                        state.checkpoint();
-                        yield new ActionResult.Success(action);
-                    }
-                    else{
-                        throw new IllegalArgumentException("This branch should not be reached");
-                    }
-                }
-                else if(state.getAllPlayerPositions().contains(left)){
-                    yield new ActionResult.Failed(action,"You hit another player.\n");
-                }
-                else if(state.getEntity(left) instanceof Empty){
-                    state.move(player_pos, Position.of(player_pos.x()-1, player_pos.y()));
-                    state.checkpoint();
-                    yield new ActionResult.Success(action);
-                }
-                else{
-                    yield new ActionResult.Failed(action,"This branch should not be reached");
-                }
-            }
+    private void checkpoint() {
+        if (!deferCheckpoint) {
+            state.checkpoint();
+        }
+    }
 
-            case Move.Right r -> {
-                Position player_pos = state.getPlayerPositionById(r.getInitiator());
-                Position right = Position.of(player_pos.x()+1, player_pos.y());
-                if (state.getEntity(right) instanceof Wall){
-                    yield new ActionResult.Failed(action,"You hit a wall.\n");
-                }
-                else if(state.getEntity(right) instanceof Box){
-                    Position check = Position.of(player_pos.x()+2, player_pos.y());
-                    if (state.getEntity(check) instanceof Box || state.getEntity(check) instanceof Wall || state.getEntity(check) instanceof Player){
-                        yield new ActionResult.Failed(action,"Failed to push the box.\n");
-                    }
-                    else if(state.getEntity(check) instanceof Empty){
-                        state.move(right, Position.of(right.x()+1, right.y()));
-                        state.move(player_pos, Position.of(player_pos.x()+1, player_pos.y()));
-                        state.checkpoint();
-                        yield new ActionResult.Success(action);
-                    }
-                    else{
-                        throw new IllegalArgumentException("This branch should not be reached");
-                    }
-                }
-                else if(state.getAllPlayerPositions().contains(right)){
-                    yield new ActionResult.Failed(action,"You hit another player.\n");
-                }
-                else if(state.getEntity(right) instanceof Empty){
-                    state.move(player_pos, Position.of(player_pos.x()+1, player_pos.y()));
-                    state.checkpoint();
-                    yield new ActionResult.Success(action);
-                }
-                else{
-                    yield new ActionResult.Failed(action,"This branch should not be reached");
-                }
+    /**
+     * Resolve a move with {@link GameState#tryMove(Move)}, which implements the movement rules for all four
+     * directions, and apply it to the game state if it succeeds. Each neighbouring cell is read once,
+     * and nothing is allocated. In {@link TrainingMode#REJECT}, a push leaving the box on a dead square
+     * is not applied and results in {@link MoveOutcome#DEAD_SQUARE}.
+     *
+     * @param move The move.
+     * @return The outcome of the move.
+     */
+    protected MoveOutcome resolveMove(@NotNull Move move) {
+        final var outcome = state.tryMove(move);
+        if (outcome.isSuccess()) {
+            // The move stays inside the map, so packed coordinates can be offset directly.
+            final int from = state.playerCellById(move.getInitiator());
+            final int delta = move.getDy() * state.getMapMaxWidth() + move.getDx();
+            final int target = from + delta;
+            if (outcome == MoveOutcome.PUSHED && trainingMode == TrainingMode.REJECT
+                && state.isDeadSquare(target + delta)) {
+                return MoveOutcome.DEAD_SQUARE;
             }
+            if (outcome == MoveOutcome.PUSHED) {
+                state.move(target, target + delta);
+            }
+            state.move(from, target);
+            checkpoint();
+        }
+        return outcome;
+    }
 
-            case Move.Up u ->{
-                Position player_pos = state.getPlayerPositionById(u.getInitiator());
-                Position up = Position.of(player_pos.x(), player_pos.y()-1);
-                if (state.getEntity(up) instanceof Wall){
-                    yield new ActionResult.Failed(action,"You hit a wall.\n");
-                }
-                else if(state.getEntity(up) instanceof Box){
-                    Position check = Position.of(player_pos.x(), player_pos.y()-2);
-                    if (state.getEntity(check) instanceof Box || state.getEntity(check) instanceof Wall || state.getEntity(check) instanceof Player){
-                        yield new ActionResult.Failed(action,"Failed to push the box.\n");
-                    }
-                    else if(state.getEntity(check) instanceof Empty){
-                        state.move(up, Position.of(up.x(), up.y()-1));
-                        state.move(player_pos, Position.of(player_pos.x(), player_pos.y()-1));
-                        state.checkpoint();
-                        yield new ActionResult.Success(action);
-                    }
-                    else{
-                        yield new ActionResult.Failed(action,"This branch should not be reached");
-                    }
-                }
-                else if(state.getAllPlayerPositions().contains(up)){
-                    yield new ActionResult.Failed(action,"You hit another player.\n");
-                }
-                else if(state.getEntity(up) instanceof Empty){
-                    state.move(player_pos, Position.of(player_pos.x(), player_pos.y()-1));
-                    state.checkpoint();
-                    yield new ActionResult.Success(action);
-                }
-                else{
-                    yield new ActionResult.Failed(action,"This branch should not be reached");
-                }
+    /**
+     * @param action The action received from the user.
+     * @return The result of the action. In {@link TrainingMode#FLAG}, a push leaving the box on a dead square
+     * succeeds with a warning.
+     */
+    protected ActionResult processAction(@NotNull Action action) {
+        return switch (action){
+            case Move move -> {
+                final var outcome = resolveMove(move);
+                if (!outcome.isSuccess()) {
+                    yield new ActionResult.Failed(action, Objects.requireNonNull(outcome.getReason()));
+                }
+                final int box = state.playerCellById(move.getInitiator())
+                    + move.getDy() * state.getMapMaxWidth() + move.getDx();
+                yield outcome == MoveOutcome.PUSHED && trainingMode == TrainingMode.FLAG && state.isDeadSquare(box)
+                    ? new ActionResult.Success(action, StringResources.DEAD_SQUARE_MESSAGE)
+                    : new ActionResult.Success(action);
             }
 
             case Exit ignored2 -> new ActionResult.Success(action);
 
             case Undo ignored1 -> {
                 if (state.getUndoQuota().orElse(0)==0){
-                    yield new ActionResult.Failed(action, "You have run out of your undo quota.\n");
+                    yield new ActionResult.Failed(action, StringResources.UNDO_QUOTA_RUN_OUT);
                 }
                 else{
                     state.undo();
@@ -198,7 +178,7 @@ public abstract class AbstractSokobanGame implements SokobanGame {
                 }
             }
 
-            case InvalidInput ignored -> new ActionResult.Failed(action,"Invalid Input.\n");
+            case InvalidInput ignored -> new ActionResult.Failed(action,StringResources.INVALID_INPUT_MESSAGE);
         };
     }
 }
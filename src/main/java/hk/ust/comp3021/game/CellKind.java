@@ -0,0 +1,96 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.entities.Entity;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.entities.Wall;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Primitive codes describing the content of a cell, returned by
+ * {@link GameState#cellKind(int, int)} and {@link GameMap#cellKind(int, int)}.
+ * <p>
+ * A code packs three fields:
+ * <li>The lowest three bits hold the kind, one of {@link #VOID}, {@link #WALL}, {@link #EMPTY}, {@link #BOX} or {@link #PLAYER}.</li>
+ * <li>{@link #DESTINATION} is set when the cell is a box destination.</li>
+ * <li>The bits from {@link #OWNER_SHIFT} hold the player id of a box or a player.</li>
+ */
+public final class CellKind {
+
+    /**
+     * A position that is not part of the map.
+     */
+    public static final int VOID = 0;
+    /**
+     * A wall.
+     */
+    public static final int WALL = 1;
+    /**
+     * A cell with nothing on it.
+     */
+    public static final int EMPTY = 2;
+    /**
+     * A cell holding a box.
+     */
+    public static final int BOX = 3;
+    /**
+     * A cell holding a player.
+     */
+    public static final int PLAYER = 4;
+    /**
+     * Mask selecting the kind of a code.
+     */
+    public static final int KIND_MASK = 0x7;
+    /**
+     * Flag set when the cell is a box destination.
+     */
+    public static final int DESTINATION = 0x8;
+    /**
+     * Shift of the owner id in a code.
+     */
+    public static final int OWNER_SHIFT = 4;
+
+    private CellKind() {
+    }
+
+    /**
+     * @param code a cell code.
+     * @return the kind of the cell.
+     */
+    public static int kindOf(int code) {
+        return code & KIND_MASK;
+    }
+
+    /**
+     * @param code a cell code.
+     * @return the id of the player owning the box, or of the player, at the cell.
+     */
+    public static int ownerOf(int code) {
+        return code >>> OWNER_SHIFT;
+    }
+
+    /**
+     * @param code a cell code.
+     * @return true if the cell is a box destination.
+     */
+    public static boolean isDestination(int code) {
+        return (code & DESTINATION) != 0;
+    }
+
+    /**
+     * Convert a cell code to the corresponding shared {@link Entity} instance.
+     *
+     * @param code a cell code.
+     * @return the entity, or null if the cell is not part of the map.
+     */
+    public static @Nullable Entity toEntity(int code) {
+        return switch (kindOf(code)) {
+            case BOX -> Box.of(ownerOf(code));
+            case PLAYER -> Player.of(ownerOf(code));
+            case WALL -> Wall.instance();
+            case EMPTY -> Empty.instance();
+            default -> null;
+        };
+    }
+}
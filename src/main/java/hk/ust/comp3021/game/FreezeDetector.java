@@ -0,0 +1,155 @@
+package hk.ust.comp3021.game;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Detects boxes that can never move again, and thereby levels that can no longer be solved.
+ * <p>
+ * A box is frozen when it is blocked both horizontally and vertically. It is blocked along an axis when, on either
+ * side, there is a wall or a frozen box, or when both sides are dead squares, see {@link GameMap#isDeadSquare(int, int)}.
+ * While a box is being checked, it counts as a wall for the boxes around it, so that boxes blocking each other,
+ * e.g. a 2x2 block, are found frozen. Boxes of any owner block each other, and a box whose owner is not in the map
+ * can never be pushed, so it is always frozen. Players are ignored, as they can always step aside.
+ * <p>
+ * A push creates a deadlock when the pushed box lands on a dead square, or freezes together with a box that is not
+ * on a destination. Only the boxes around the pushed box are examined.
+ * <p>
+ * A detector keeps scratch space between calls, so it must not be used by several threads at once.
+ */
+public final class FreezeDetector {
+
+    private static final int[] DIRECTION_DX = {0, 0, -1, 1};
+
+    private static final int[] DIRECTION_DY = {-1, 1, 0, 0};
+
+    private final GameMap map;
+
+    private final int width;
+
+    private final int height;
+
+    private final IntUnaryOperator boxOwnerAt;
+
+    /**
+     * Whether each player id is in the map.
+     */
+    private final boolean[] hasPlayer = new boolean[GameMap.MAX_PLAYERS];
+
+    /**
+     * Boxes being checked count as walls: a cell is marked if its mark equals the current stamp.
+     */
+    private final int[] marks;
+
+    /**
+     * Incremented before each check, so a mark of 0 never matches.
+     */
+    private int stamp;
+
+    /**
+     * Whether a box found frozen during the current check is not on a destination.
+     */
+    private boolean offGoal;
+
+    /**
+     * Create a detector for the boxes of a search, which are kept outside any game state.
+     *
+     * @param state      A game state of the map, of which only the terrain and the players present are used.
+     * @param boxOwnerAt Gives the owner of the box on a row-major cell of the map, or -1 if there is no box.
+     */
+    public FreezeDetector(@NotNull GameState state, @NotNull IntUnaryOperator boxOwnerAt) {
+        this(state.getMap(), boxOwnerAt);
+    }
+
+    /**
+     * @param map        The game map, whose terrain must not change while the detector is used.
+     * @param boxOwnerAt Gives the owner of the box on a row-major cell of the map, or -1 if there is no box.
+     */
+    FreezeDetector(@NotNull GameMap map, @NotNull IntUnaryOperator boxOwnerAt) {
+        this.map = map;
+        this.width = map.getMaxWidth();
+        this.height = map.getMaxHeight();
+        this.boxOwnerAt = boxOwnerAt;
+        for (final int id : map.getPlayerIds()) {
+            hasPlayer[id] = true;
+        }
+        this.marks = new int[width * height];
+    }
+
+    /**
+     * Check whether the box on a cell is part of a deadlock, e.g. right after it has been pushed there.
+     *
+     * @param cell The row-major cell of the box.
+     * @return true if the level can no longer be solved because of the box or the boxes around it,
+     * false if there is no box on the cell.
+     */
+    public boolean isDeadlock(int cell) {
+        if (boxOwnerAt.applyAsInt(cell) < 0) {
+            return false;
+        }
+        if (map.isDeadCell(cell)) {
+            return true;
+        }
+        stamp++;
+        offGoal = false;
+        return isFrozen(cell) && offGoal;
+    }
+
+    /**
+     * Whether the box on a cell is frozen. A frozen box stays a wall for the rest of the check, while a box that
+     * can move is unmarked again, and the boxes found frozen only by assuming it was a wall no longer count.
+     */
+    private boolean isFrozen(int cell) {
+        final boolean offGoalBefore = offGoal;
+        final int owner = boxOwnerAt.applyAsInt(cell);
+        marks[cell] = stamp;
+        final boolean frozen = !hasPlayer[owner] || isBlocked(cell, 0) && isBlocked(cell, 2);
+        if (frozen) {
+            offGoal |= !isDestination(cell);
+        } else {
+            marks[cell] = 0;
+            offGoal = offGoalBefore;
+        }
+        return frozen;
+    }
+
+    /**
+     * Whether the box on a cell cannot move along the axis of a direction: 0 for vertical, 2 for horizontal.
+     */
+    private boolean isBlocked(int cell, int axis) {
+        final int before = neighbor(cell, axis);
+        final int after = neighbor(cell, axis + 1);
+        if (isWall(before) || isWall(after)) {
+            return true;
+        }
+        if (map.isDeadCell(before) && map.isDeadCell(after)) {
+            return true;
+        }
+        return isFrozenBox(before) || isFrozenBox(after);
+    }
+
+    private boolean isFrozenBox(int cell) {
+        return boxOwnerAt.applyAsInt(cell) >= 0 && isFrozen(cell);
+    }
+
+    /**
+     * Whether a cell stops a box: outside the map, not floor, or a box being checked.
+     */
+    private boolean isWall(int cell) {
+        return cell < 0 || !map.isFloor(cell % width, cell / width) || marks[cell] == stamp;
+    }
+
+    private boolean isDestination(int cell) {
+        return map.isDestination(cell % width, cell / width);
+    }
+
+    /**
+     * @return the neighbouring cell in a direction, or -1 if it is outside the map.
+     */
+    private int neighbor(int cell, int direction) {
+        final int x = cell % width + DIRECTION_DX[direction];
+        final int y = cell / width + DIRECTION_DY[direction];
+        return x >= 0 && y >= 0 && x < width && y < height ? y * width + x : -1;
+    }
+}
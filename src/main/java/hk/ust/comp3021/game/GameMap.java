@@ -5,6 +5,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import java.lang.IllegalArgumentException;
@@ -38,25 +40,107 @@ public class GameMap {
     protected HashSet<Position> destinations;
     protected int undoLimit;
 
-    private ArrayList<Position> walls;
+    /**
+     * Terrain code of a cell that is not part of the map.
+     */
+    static final byte VOID = CellKind.VOID;
+    /**
+     * Terrain code of a wall.
+     */
+    static final byte WALL = CellKind.WALL;
+    /**
+     * Terrain code of a cell players and boxes can stand on.
+     */
+    static final byte FLOOR = CellKind.EMPTY;
+    /**
+     * Flag combined with {@link #FLOOR} to mark a box destination.
+     */
+    static final byte DESTINATION = CellKind.DESTINATION;
 
-    private ArrayList<Integer> init_player;
+    /**
+     * The maximum number of players in a map, one per upper-case letter.
+     */
+    public static final int MAX_PLAYERS = 26;
 
-    private ArrayList<Position> init_player_loc;
+    /**
+     * Magic number at the start of a binary map, the ASCII text "SMAP".
+     */
+    public static final int BINARY_MAGIC = 0x534D4150;
 
-    private ArrayList<Integer> init_box;
+    /**
+     * Version of the binary map format.
+     */
+    public static final byte BINARY_VERSION = 1;
 
-    private ArrayList<Position> init_box_loc;
+    /**
+     * Terrain codes indexed by their 2-bit code in the binary map format.
+     */
+    private static final byte[] BINARY_TERRAIN = {VOID, WALL, FLOOR, FLOOR | DESTINATION};
 
-    private ArrayList<Position> effective_loc;
+    /**
+     * Row-major terrain grid, one of {@link #VOID}, {@link #WALL}, {@link #FLOOR} or {@code FLOOR | DESTINATION}.
+     */
+    private byte[] terrain;
+
+    /**
+     * Row-major grid of initial occupants.
+     * 0 means no occupant, {@code id + 1} is a box of player {@code id} and {@code -(id + 1)} is player {@code id}.
+     */
+    private byte[] occupant;
+
+    /**
+     * Initial cell index of each player indexed by player id, -1 if the player is absent.
+     */
+    private int[] playerCells;
+
+    /**
+     * Whether the map has been frozen by {@link #freeze()}.
+     */
+    private volatile boolean frozen;
+
+    /**
+     * Bitmap of the dead squares, bit {@code cell & 63} of word {@code cell >>> 6}, computed on first use by
+     * {@link #deadSquares()} and dropped whenever the terrain changes. Null until computed.
+     */
+    private volatile long[] deadSquares;
+
+    /**
+     * The interned positions covering this map, only held so that they stay interned while the map is in use.
+     */
+    private Position[][] positions;
 
     public GameMap(int maxWidth, int maxHeight, Set<Position> destinations, int undoLimit) {
-        //TODO
         this.maxWidth = maxWidth;
         this.maxHeight = maxHeight;
         this.destinations = new HashSet<>();
-        this.destinations.addAll(destinations);
         this.undoLimit = undoLimit;
+        this.positions = Position.reserve(maxWidth, maxHeight);
+        this.terrain = new byte[maxWidth * maxHeight];
+        this.occupant = new byte[maxWidth * maxHeight];
+        this.playerCells = new int[MAX_PLAYERS];
+        Arrays.fill(terrain, FLOOR);
+        Arrays.fill(playerCells, -1);
+        for (Position destination : destinations) {
+            if (isInside(destination.x(), destination.y(), maxWidth, maxHeight)) {
+                terrain[destination.y() * maxWidth + destination.x()] = FLOOR | DESTINATION;
+            }
+            this.destinations.add(destination);
+        }
+    }
+
+    /**
+     * Adopt an already built grid.
+     */
+    private GameMap(int maxWidth, int maxHeight, int undoLimit, byte[] terrain, byte[] occupant, int[] playerCells,
+                    HashSet<Position> destinations) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.destinations = destinations;
+        this.undoLimit = undoLimit;
+        this.terrain = terrain;
+        this.occupant = occupant;
+        this.playerCells = playerCells;
+        this.positions = Position.reserve(maxWidth, maxHeight);
     }
 
     /**
@@ -95,130 +179,259 @@ public class GameMap {
      *                                  or if there are players that have no corresponding boxes.
      */
     public static GameMap parse(String mapText) {
-        //TODO
-        String[] extract = mapText.split("\n", 2);
-        StringBuilder number = new StringBuilder();
-        for (char num:extract[0].toCharArray()){
-            if (num >= '0' && num <= '9' || num == '-'){
-                number.append(num);
+        return parse((CharSequence) mapText);
+    }
+
+    /**
+     * Parses the map from a string representation in a single pass over the text.
+     * The format, the validation and the exceptions are the same as {@link #parse(String)}.
+     *
+     * @param mapText The string representation, e.g. a {@link String} or a {@link java.nio.CharBuffer} wrapping a {@code char[]}.
+     * @return The parsed GameMap object.
+     * @throws IllegalArgumentException if the map is invalid, see {@link #parse(String)}.
+     */
+    public static GameMap parse(CharSequence mapText) {
+        final int length = mapText.length();
+        int pos = 0;
+        final StringBuilder number = new StringBuilder();
+        for (; pos < length && mapText.charAt(pos) != '\n'; pos++) {
+            final char c = mapText.charAt(pos);
+            if (c >= '0' && c <= '9' || c == '-') {
+                number.append(c);
             }
         }
-        int limit = Integer.parseInt(number.toString());
-        String map = extract[1];
-        if (limit < -1){
+        if (pos == length) {
+            throw new IllegalArgumentException("missing map");
+        }
+        final int limit = Integer.parseInt(number.toString());
+        if (limit < -1) {
             throw new IllegalArgumentException("invalid undo limit");
         }
-        ArrayList<Character> check = new ArrayList<>();
-        int box_num = 0;
-        int box_dest_num = 0;
-        String[] lines = map.split("\n");
-        int height = lines.length;
-        HashSet<Position> dest_set = new HashSet<>();
-        ArrayList<Position> walls_set = new ArrayList<>();
-        ArrayList<Integer> init_player_set = new ArrayList<>();
-        ArrayList<Position> init_player_loc_set= new ArrayList<>();
-        ArrayList<Integer> init_box_set = new ArrayList<>();
-        ArrayList<Position> init_box_loc_set = new ArrayList<>();
-        ArrayList<Position> init_effective_loc = new ArrayList<>();
-
-        int width = -1;
-
-        for (int k = 0; k < height; k++) {
-            char[] line = lines[k].toCharArray();
-            boolean start = false;
-            int counter = 0;
-            for (int i = 0; i < line.length; i++) {
-                if (line[i]!=' '){
-                    start = true;
-                }
-                if (line[i]==' ') {
-                    boolean substring_all_spaces = true;
-                    for (int j = i; j <line.length; j++){
-                        if (line[j] != ' ') {
-                            substring_all_spaces = false;
-                            break;
-                        }
-                    }
-                    if (!substring_all_spaces){
-                        start =false;
-                    }
+        final int bodyStart = ++pos;
+
+        // Cells are laid out by their offset in the text first, since the width is only known at the end.
+        final byte[] textTerrain = new byte[length - bodyStart];
+        final byte[] textOccupant = new byte[length - bodyStart];
+        final int[] playerRows = new int[MAX_PLAYERS];
+        final int[] playerColumns = new int[MAX_PLAYERS];
+        int[] lineStarts = new int[16];
+        int lines = 0;
+        int height = 0;
+        int width = 0;
+        int playerMask = 0;
+        int boxMask = 0;
+        int boxes = 0;
+        final HashSet<Position> destinations = new HashSet<>();
+
+        int lineStart = bodyStart;
+        for (; pos <= length; pos++) {
+            if (pos == length || mapText.charAt(pos) == '\n') {
+                if (lines == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lines * 2);
                 }
-                if (start){
-                    counter++;
+                lineStarts[lines++] = lineStart;
+                if (pos > lineStart) {
+                    height = lines;
+                    width = Math.max(width, pos - lineStart);
                 }
-                if (line[i] >= 'A' && line[i] <= 'Z' && !check.contains(line[i])) {
-                    init_player_set.add(Character.getNumericValue(line[i])-Character.getNumericValue('A'));
-                    init_player_loc_set.add(Position.of(i, k));
-                    check.add(line[i]);
-                    init_effective_loc.add(Position.of(i,k));
-                } else if (line[i] >= 'A' && line[i] <= 'Z' && check.contains(line[i])) {
+                lineStart = pos + 1;
+                continue;
+            }
+            final char c = mapText.charAt(pos);
+            final int offset = pos - bodyStart;
+            if (c >= 'A' && c <= 'Z') {
+                final int bit = 1 << (c - 'A');
+                if ((playerMask & bit) != 0) {
                     throw new IllegalArgumentException("duplicate players detected in the map");
                 }
-                if (line[i] == '@') {
-                    box_dest_num++;
-                    dest_set.add(Position.of(i, k));
-                    init_effective_loc.add(Position.of(i,k));
-                }
-                if (line[i] >= 'a' && line[i] <= 'z') {
-                    box_num++;
-                    init_box_set.add(Character.getNumericValue(line[i])-Character.getNumericValue('a'));
-                    init_box_loc_set.add(Position.of(i, k));
-                    init_effective_loc.add(Position.of(i,k));
+                playerMask |= bit;
+                playerRows[c - 'A'] = lines;
+                playerColumns[c - 'A'] = pos - lineStart;
+                textOccupant[offset] = (byte) -(c - 'A' + 1);
+                textTerrain[offset] = FLOOR;
+            } else if (c >= 'a' && c <= 'z') {
+                boxMask |= 1 << (c - 'a');
+                boxes++;
+                textOccupant[offset] = (byte) (c - 'a' + 1);
+                textTerrain[offset] = FLOOR;
+            } else if (c == '@') {
+                destinations.add(Position.of(pos - lineStart, lines));
+                textTerrain[offset] = FLOOR | DESTINATION;
+            } else if (c == '#') {
+                textTerrain[offset] = WALL;
+            } else if (c == '.') {
+                textTerrain[offset] = FLOOR;
+            }
+        }
+
+        if ((boxMask & ~playerMask) != 0) {
+            throw new IllegalArgumentException("unmatched players");
+        }
+        if (boxes != destinations.size()) {
+            throw new IllegalArgumentException("mismatch destinations");
+        }
+        if (playerMask == 0) {
+            throw new IllegalArgumentException("no player");
+        }
+        if ((playerMask & ~boxMask) != 0) {
+            throw new IllegalArgumentException("unmatched players");
+        }
+
+        final byte[] terrain = new byte[width * height];
+        final byte[] occupant = new byte[width * height];
+        for (int row = 0; row < height; row++) {
+            final int from = lineStarts[row] - bodyStart;
+            final int to = row + 1 < lines ? lineStarts[row + 1] - 1 - bodyStart : textTerrain.length;
+            System.arraycopy(textTerrain, from, terrain, row * width, to - from);
+            System.arraycopy(textOccupant, from, occupant, row * width, to - from);
+        }
+        final int[] playerCells = new int[MAX_PLAYERS];
+        Arrays.fill(playerCells, -1);
+        for (int id = 0; id < MAX_PLAYERS; id++) {
+            if ((playerMask & (1 << id)) != 0) {
+                playerCells[id] = playerRows[id] * width + playerColumns[id];
+            }
+        }
+        return new GameMap(width, height, limit, terrain, occupant, playerCells, destinations);
+    }
+
+    /**
+     * Loads a map from the compact binary format written by {@link #toBinary()}.
+     * The layout, in big-endian byte order, is:
+     * <li>The magic number {@link #BINARY_MAGIC} and the format version {@link #BINARY_VERSION}.</li>
+     * <li>Width, height and undo limit as ints.</li>
+     * <li>The terrain grid in row-major order, 2 bits per cell and 4 cells per byte.</li>
+     * <li>The player table: the number of players as a byte, then the id as a byte and the cell index as an int for each player.</li>
+     * <li>The box table: the number of boxes as an int, then the owner id as a byte and the cell index as an int for each box.</li>
+     * <p>
+     * The buffer can be a memory-mapped file; nothing refers to it once this method returns.
+     *
+     * @param buffer The buffer positioned at the start of the map.
+     * @return The loaded GameMap object.
+     * @throws IllegalArgumentException if the buffer does not hold a valid map.
+     */
+    public static GameMap fromBinary(ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != BINARY_MAGIC || buffer.get() != BINARY_VERSION) {
+                throw new IllegalArgumentException("not a binary map");
+            }
+            final int width = buffer.getInt();
+            final int height = buffer.getInt();
+            final int limit = buffer.getInt();
+            if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid map size");
+            }
+            if (limit < -1) {
+                throw new IllegalArgumentException("invalid undo limit");
+            }
+            final int cells = width * height;
+            final byte[] terrain = new byte[cells];
+            final HashSet<Position> destinations = new HashSet<>();
+            for (int cell = 0; cell < cells; cell += 4) {
+                final int packed = buffer.get();
+                for (int i = 0; i < 4 && cell + i < cells; i++) {
+                    terrain[cell + i] = BINARY_TERRAIN[(packed >>> (2 * i)) & 0x3];
+                    if (terrain[cell + i] == (FLOOR | DESTINATION)) {
+                        destinations.add(Position.of((cell + i) % width, (cell + i) / width));
+                    }
                 }
+            }
 
-                if (line[i] == '#') {
-                    walls_set.add(Position.of(i, k));
+            final byte[] occupant = new byte[cells];
+            final int[] playerCells = new int[MAX_PLAYERS];
+            Arrays.fill(playerCells, -1);
+            int playerMask = 0;
+            final int players = buffer.get();
+            for (int i = 0; i < players; i++) {
+                final int id = buffer.get();
+                final int cell = buffer.getInt();
+                if (id < 0 || id >= MAX_PLAYERS || cell < 0 || cell >= cells || occupant[cell] != 0) {
+                    throw new IllegalArgumentException("invalid player entry");
                 }
-                if (line[i] == '.'){
-                    init_effective_loc.add(Position.of(i,k));
+                if ((playerMask & (1 << id)) != 0) {
+                    throw new IllegalArgumentException("duplicate players detected in the map");
                 }
+                playerMask |= 1 << id;
+                playerCells[id] = cell;
+                occupant[cell] = (byte) -(id + 1);
             }
-            if (counter > width){
-                width = counter;
+            int boxMask = 0;
+            final int boxes = buffer.getInt();
+            for (int i = 0; i < boxes; i++) {
+                final int id = buffer.get();
+                final int cell = buffer.getInt();
+                if (id < 0 || id >= MAX_PLAYERS || cell < 0 || cell >= cells || occupant[cell] != 0) {
+                    throw new IllegalArgumentException("invalid box entry");
+                }
+                boxMask |= 1 << id;
+                occupant[cell] = (byte) (id + 1);
             }
+
+            if (boxMask != playerMask) {
+                throw new IllegalArgumentException("unmatched players");
+            }
+            if (boxes != destinations.size()) {
+                throw new IllegalArgumentException("mismatch destinations");
+            }
+            if (playerMask == 0) {
+                throw new IllegalArgumentException("no player");
+            }
+            return new GameMap(width, height, limit, terrain, occupant, playerCells, destinations);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated binary map", e);
         }
-        for (String s : lines) {
-            char[] line = s.toCharArray();
-            for (char c : line) {
-                if (c >= 'a' && c <= 'z' && !check.contains(Character.toUpperCase(c))) {
-                    throw new IllegalArgumentException("unmatched players");
-                }
+    }
+
+    /**
+     * Serializes the map into the compact binary format read by {@link #fromBinary(ByteBuffer)}.
+     *
+     * @return A buffer holding the serialized map, ready to be read or written to a channel.
+     */
+    public ByteBuffer toBinary() {
+        final int cells = terrain.length;
+        int players = 0;
+        int boxes = 0;
+        for (byte who : occupant) {
+            if (who > 0) {
+                boxes++;
+            } else if (who < 0) {
+                players++;
             }
         }
-        if (box_num!=box_dest_num){
-            throw new IllegalArgumentException("mismatch destinations");
+        final ByteBuffer buffer = ByteBuffer.allocate(
+            Integer.BYTES + 1 + 3 * Integer.BYTES + (cells + 3) / 4 + 1 + players * 5 + Integer.BYTES + boxes * 5
+        );
+        buffer.putInt(BINARY_MAGIC).put(BINARY_VERSION);
+        buffer.putInt(maxWidth).putInt(maxHeight).putInt(undoLimit);
+        for (int cell = 0; cell < cells; cell += 4) {
+            int packed = 0;
+            for (int i = 0; i < 4 && cell + i < cells; i++) {
+                packed |= binaryTerrainCode(terrain[cell + i]) << (2 * i);
+            }
+            buffer.put((byte) packed);
         }
-        if (check.size()==0){
-            throw new IllegalArgumentException("no player");
+        buffer.put((byte) players);
+        for (int id = 0; id < MAX_PLAYERS; id++) {
+            if (playerCells[id] >= 0) {
+                buffer.put((byte) id).putInt(playerCells[id]);
+            }
         }
-        for (char i: check){
-            if (!mapText.contains(String.valueOf(Character.toLowerCase(i)))){
-                throw new IllegalArgumentException("unmatched players");
+        buffer.putInt(boxes);
+        for (int cell = 0; cell < cells; cell++) {
+            if (occupant[cell] > 0) {
+                buffer.put((byte) (occupant[cell] - 1)).putInt(cell);
             }
         }
+        return buffer.flip();
+    }
 
-        for (int i = 0;i<init_player_set.size()-1;i++){
-            for (int k = i+1; k < init_player_set.size();k++){
-                if (init_player_set.get(i)>init_player_set.get(k)){
-                    int temp_player = init_player_set.get(i);
-                    init_player_set.set(i, init_player_set.get(k));
-                    init_player_set.set(k, temp_player);
-                    Position temp_loc = init_player_loc_set.get(i);
-                    init_player_loc_set.set(i, init_player_loc_set.get(k));
-                    init_player_loc_set.set(k, temp_loc);
-                }
+    private static int binaryTerrainCode(byte terrain) {
+        for (int code = 0; code < BINARY_TERRAIN.length; code++) {
+            if (BINARY_TERRAIN[code] == terrain) {
+                return code;
             }
         }
-
-        GameMap game_map = new GameMap(width, height, dest_set, limit);
-        game_map.init_player_loc = init_player_loc_set;
-        game_map.init_player = init_player_set;
-        game_map.init_box = init_box_set;
-        game_map.init_box_loc = init_box_loc_set;
-        game_map.walls = walls_set;
-        game_map.effective_loc = init_effective_loc;
-
-        return game_map;
+        throw new IllegalStateException("unknown terrain " + terrain);
     }
 
     /**
@@ -229,19 +442,28 @@ public class GameMap {
      */
     @Nullable
     public Entity getEntity(Position position) {
-        if (init_box_loc.contains(position)){
-            return new Box(init_box.get(init_box_loc.indexOf(position)));
-        }
-        else if (init_player_loc.contains(position)){
-            return new Player(init_player.get(init_player_loc.indexOf(position)));
-        }
-        else if (walls.contains(position)){
-            return new Wall();
+        return CellKind.toEntity(cellKind(position.x(), position.y()));
+    }
+
+    /**
+     * Get the content of a cell in the game map as a primitive code without creating any object.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return the {@link CellKind} code of the cell, {@link CellKind#VOID} if the coordinate is outside the map.
+     */
+    public int cellKind(int x, int y) {
+        if (!contains(x, y)) {
+            return CellKind.VOID;
         }
-        else if(effective_loc.contains(position)){
-            return new Empty();
+        final int cell = y * maxWidth + x;
+        final byte who = occupant[cell];
+        if (who > 0) {
+            return CellKind.BOX | (terrain[cell] & DESTINATION) | ((who - 1) << CellKind.OWNER_SHIFT);
+        } else if (who < 0) {
+            return CellKind.PLAYER | (terrain[cell] & DESTINATION) | ((-who - 1) << CellKind.OWNER_SHIFT);
         }
-        return null;
+        return terrain[cell];
     }
 
     /**
@@ -251,19 +473,220 @@ public class GameMap {
      * @param entity   the entity to put into game map.
      */
     public void putEntity(Position position, Entity entity) {
-        //TODO
-        switch (entity){
-            case Box o -> {
-                init_box.add(o.getPlayerId());
-                init_player_loc.add(position);
+        if (frozen) {
+            throw new UnsupportedOperationException("the game map is frozen");
+        }
+        int cell = indexOf(position);
+        deadSquares = null;
+        if (occupant[cell] < 0) {
+            playerCells[-occupant[cell] - 1] = -1;
+        }
+        occupant[cell] = 0;
+        switch (entity) {
+            case Box b -> {
+                occupant[cell] = (byte) (b.getPlayerId() + 1);
+                makeFloor(cell);
             }
             case Player p -> {
-                init_player.add(p.getId());
-                init_player_loc.add(position);
+                if (playerCells[p.getId()] >= 0) {
+                    occupant[playerCells[p.getId()]] = 0;
+                }
+                occupant[cell] = (byte) -(p.getId() + 1);
+                playerCells[p.getId()] = cell;
+                makeFloor(cell);
             }
-            case Wall ignored -> walls.add(position);
-            default ->{}
+            case Wall ignored -> terrain[cell] = WALL;
+            case Empty ignored -> makeFloor(cell);
+        }
+    }
+
+    private void makeFloor(int cell) {
+        terrain[cell] = (byte) (FLOOR | (terrain[cell] & DESTINATION));
+    }
+
+    /**
+     * Make the map immutable, so it can be shared by any number of game states and threads.
+     * Afterwards {@link #putEntity(Position, Entity)} throws {@link UnsupportedOperationException}.
+     *
+     * @return this map.
+     */
+    public GameMap freeze() {
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * @return true if the map has been frozen by {@link #freeze()}.
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Check whether the given coordinate is a wall.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return true if there is a wall at the coordinate.
+     */
+    public boolean isWall(int x, int y) {
+        return contains(x, y) && terrain[y * maxWidth + x] == WALL;
+    }
+
+    /**
+     * Check whether the given coordinate is a box destination.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return true if there is a box destination at the coordinate.
+     */
+    public boolean isDestination(int x, int y) {
+        return contains(x, y) && (terrain[y * maxWidth + x] & DESTINATION) != 0;
+    }
+
+    /**
+     * Check whether the given coordinate lies within the bounds of the map.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return true if the coordinate is inside the map.
+     */
+    public boolean contains(int x, int y) {
+        return isInside(x, y, maxWidth, maxHeight);
+    }
+
+    /**
+     * Bounds check not depending on overridable methods, so that constructors can use it.
+     */
+    private static boolean isInside(int x, int y, int width, int height) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Check whether the given coordinate is a cell players and boxes can stand on.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return true if the coordinate is neither a wall nor outside the map.
+     */
+    public boolean isFloor(int x, int y) {
+        return contains(x, y) && (terrain[y * maxWidth + x] & FLOOR) != 0;
+    }
+
+    /**
+     * Check whether a box on the given coordinate can never be pushed onto any box destination, whatever the
+     * other boxes and players do, e.g. a corner or a stretch of wall without a destination along it.
+     * The squares are computed from the terrain on first use and then shared by every game state of this map.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return true if the coordinate is a floor cell from which no destination can be reached by pushing.
+     */
+    public boolean isDeadSquare(int x, int y) {
+        return contains(x, y) && isDeadCell(y * maxWidth + x);
+    }
+
+    /**
+     * Check whether a box on the given position can never be pushed onto any box destination,
+     * see {@link #isDeadSquare(int, int)}.
+     *
+     * @param position the position in the game map.
+     * @return true if the position is a floor cell from which no destination can be reached by pushing.
+     */
+    public boolean isDeadSquare(@NotNull Position position) {
+        return isDeadSquare(position.x(), position.y());
+    }
+
+    /**
+     * @param cell row-major cell index.
+     * @return whether the cell is a dead square, see {@link #isDeadSquare(int, int)}.
+     */
+    boolean isDeadCell(int cell) {
+        return (deadSquares()[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * Compute the dead squares unless cached.
+     * Concurrent first calls may each compute the same bitmap, and any of them is kept.
+     * <p>
+     * A box can reach a destination if it can be pulled there backwards: a box pushed from cell {@code c} in
+     * direction {@code d} lands on {@code c + d} and needs the player on {@code c - d}. So starting from every
+     * destination, the box is pulled back to {@code c} from {@code c + d} whenever both {@code c} and
+     * {@code c - d} are floor. Floor cells never reached this way are dead. Other boxes and players are ignored,
+     * as they may move away, so the same squares are dead for the boxes of every player.
+     */
+    private long[] deadSquares() {
+        var dead = deadSquares;
+        if (dead != null) {
+            return dead;
+        }
+        final int cells = maxWidth * maxHeight;
+        final boolean[] live = new boolean[cells];
+        final int[] queue = new int[cells];
+        int tail = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if ((terrain[cell] & DESTINATION) != 0) {
+                live[cell] = true;
+                queue[tail++] = cell;
             }
+        }
+        final int[] dx = {0, 0, -1, 1};
+        final int[] dy = {-1, 1, 0, 0};
+        for (int head = 0; head < tail; head++) {
+            final int x = queue[head] % maxWidth;
+            final int y = queue[head] / maxWidth;
+            for (int d = 0; d < 4; d++) {
+                final int fromX = x - dx[d];
+                final int fromY = y - dy[d];
+                if (isFloor(fromX, fromY) && isFloor(fromX - dx[d], fromY - dy[d]) && !live[fromY * maxWidth + fromX]) {
+                    live[fromY * maxWidth + fromX] = true;
+                    queue[tail++] = fromY * maxWidth + fromX;
+                }
+            }
+        }
+        dead = new long[(cells + 63) >>> 6];
+        for (int cell = 0; cell < cells; cell++) {
+            if ((terrain[cell] & FLOOR) != 0 && !live[cell]) {
+                dead[cell >>> 6] |= 1L << cell;
+            }
+        }
+        deadSquares = dead;
+        return dead;
+    }
+
+    /**
+     * @param cell row-major cell index.
+     * @return the terrain code of the cell.
+     */
+    byte terrainAt(int cell) {
+        return terrain[cell];
+    }
+
+    /**
+     * @param cell row-major cell index.
+     * @return the encoded initial occupant of the cell, see {@link #occupant}.
+     */
+    byte occupantAt(int cell) {
+        return occupant[cell];
+    }
+
+    /**
+     * @param id player id.
+     * @return the initial cell index of the player, or -1 if there is no such player.
+     */
+    int playerCell(int id) {
+        return id >= 0 && id < MAX_PLAYERS ? playerCells[id] : -1;
+    }
+
+    private int indexOf(Position position) {
+        if (!contains(position.x(), position.y())) {
+            throw new IllegalArgumentException("position out of map: " + position);
+        }
+        return position.y() * maxWidth + position.x();
+    }
+
+    private Position positionOf(int cell) {
+        return Position.of(cell % maxWidth, cell / maxWidth);
     }
 
     /**
@@ -272,8 +695,7 @@ public class GameMap {
      * @return a set of positions.
      */
     public @NotNull @Unmodifiable Set<Position> getDestinations() {
-        //
-        return destinations;
+        return Collections.unmodifiableSet(destinations);
     }
 
     /**
@@ -282,7 +704,6 @@ public class GameMap {
      * @return undo limit.
      */
     public Optional<Integer> getUndoLimit() {
-        //TODO
         return Optional.of(undoLimit);
     }
 
@@ -292,9 +713,12 @@ public class GameMap {
      * @return a set of player id.
      */
     public Set<Integer> getPlayerIds() {
-        //TODO
         HashSet<Integer> player = new HashSet<>();
-        player.addAll(init_player);
+        for (int id = 0; id < MAX_PLAYERS; id++) {
+            if (playerCells[id] >= 0) {
+                player.add(id);
+            }
+        }
         return player;
     }
 
@@ -304,7 +728,6 @@ public class GameMap {
      * @return maximum width.
      */
     public int getMaxWidth() {
-        //TODO
         return maxWidth;
     }
 
@@ -314,27 +737,71 @@ public class GameMap {
      * @return maximum height.
      */
     public int getMaxHeight() {
-        //TODO
         return maxHeight;
     }
 
+    /**
+     * @return owner ids of the initial boxes in row-major order, matching {@link #getInit_box_loc()}.
+     */
     public ArrayList<Integer> getInit_box() {
-        return init_box;
+        ArrayList<Integer> boxes = new ArrayList<>();
+        for (byte who : occupant) {
+            if (who > 0) {
+                boxes.add(who - 1);
+            }
+        }
+        return boxes;
     }
 
+    /**
+     * @return initial box positions in row-major order.
+     */
     public ArrayList<Position> getInit_box_loc() {
-        return init_box_loc;
+        ArrayList<Position> boxes = new ArrayList<>();
+        for (int cell = 0; cell < occupant.length; cell++) {
+            if (occupant[cell] > 0) {
+                boxes.add(positionOf(cell));
+            }
+        }
+        return boxes;
     }
 
+    /**
+     * @return ids of the players in ascending order, matching {@link #getInit_player_loc()}.
+     */
     public ArrayList<Integer> getInit_player() {
-        return init_player;
+        ArrayList<Integer> players = new ArrayList<>();
+        for (int id = 0; id < MAX_PLAYERS; id++) {
+            if (playerCells[id] >= 0) {
+                players.add(id);
+            }
+        }
+        return players;
     }
 
+    /**
+     * @return initial player positions in ascending order of player id.
+     */
     public ArrayList<Position> getInit_player_loc() {
-        return init_player_loc;
+        ArrayList<Position> players = new ArrayList<>();
+        for (int id = 0; id < MAX_PLAYERS; id++) {
+            if (playerCells[id] >= 0) {
+                players.add(positionOf(playerCells[id]));
+            }
+        }
+        return players;
     }
 
+    /**
+     * @return positions of all cells that are neither walls nor outside the map, in row-major order.
+     */
     public ArrayList<Position> getEffective_loc() {
-        return effective_loc;
+        ArrayList<Position> cells = new ArrayList<>();
+        for (int cell = 0; cell < terrain.length; cell++) {
+            if ((terrain[cell] & FLOOR) != 0) {
+                cells.add(positionOf(cell));
+            }
+        }
+        return cells;
     }
 }
@@ -1,18 +1,15 @@
 package hk.ust.comp3021.game;
 
+import hk.ust.comp3021.actions.Move;
 import hk.ust.comp3021.entities.*;
-import hk.ust.comp3021.utils.NotImplementedException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Unmodifiable;
 
-import java.io.PipedOutputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
-import java.util.ArrayList;
-
-
 
 /**
  * The state of the Sokoban Game.
@@ -28,18 +25,118 @@ import java.util.ArrayList;
  */
 public class GameState {
 
+    /**
+     * Bit of {@link #legalMoves(int)} for moving up.
+     */
+    public static final int UP = 1;
+
+    /**
+     * Bit of {@link #legalMoves(int)} for moving down.
+     */
+    public static final int DOWN = 1 << 1;
+
+    /**
+     * Bit of {@link #legalMoves(int)} for moving left.
+     */
+    public static final int LEFT = 1 << 2;
+
+    /**
+     * Bit of {@link #legalMoves(int)} for moving right.
+     */
+    public static final int RIGHT = 1 << 3;
+
+    private static final int[] DIRECTIONS = {UP, DOWN, LEFT, RIGHT};
+
+    private static final int[] DIRECTION_DX = {0, 0, -1, 1};
+
+    private static final int[] DIRECTION_DY = {-1, 1, 0, 0};
+
     private GameMap map;
-    private ArrayList<Position> player_loc;
-    private ArrayList<Integer> player;
-    private ArrayList<Position> box_loc;
-    private ArrayList<Integer> box;
+    private int width;
     private int undo;
 
-    private ArrayList<ArrayList<Position>> move_history;
-    private ArrayList<ArrayList<Position>> checkpoint;
-    private ArrayList<Integer> move_times;
+    /**
+     * Occupancy bitboard of boxes, bit {@code cell} is set when a box is at that row-major cell.
+     */
+    private long[] boxPlane;
+
+    /**
+     * Occupancy bitboard of players, laid out the same as {@link #boxPlane}.
+     */
+    private long[] playerPlane;
+
+    /**
+     * Occupancy bitboard of box destinations, laid out the same as {@link #boxPlane}.
+     */
+    private long[] destinationPlane;
+
+    /**
+     * Per-cell id of the player owning the box, or of the player, currently at that cell.
+     */
+    private byte[] owner;
+
+    /**
+     * Current cell of each player indexed by player id, -1 if the player is absent.
+     */
+    private int[] playerCells;
 
-    private ArrayList<Position> effective_loc;
+    /**
+     * Number of box destinations in the map.
+     */
+    private int destinationCount;
+
+    /**
+     * Number of boxes currently on a destination.
+     */
+    private int boxesOnGoal;
+
+    /**
+     * Number of boxes currently on a destination, indexed by the id of the player owning them.
+     */
+    private int[] goalsByPlayer;
+
+    private MoveJournal journal;
+
+    /**
+     * Zobrist key of the positions, the xor of {@link #zobristKey(boolean, int, int)} over all boxes and players,
+     * updated by {@link #relocate(int, int)}.
+     */
+    private long stateHash;
+
+    /**
+     * Whether this is a read-only snapshot, see {@link #snapshot()}.
+     */
+    private boolean readOnly;
+
+    /**
+     * For a snapshot, the game state it was last taken from, see {@link #snapshot(GameState)}.
+     */
+    private GameState source;
+
+    /**
+     * For a snapshot, the end of the history of {@link #source} and its number of undos when it was taken.
+     */
+    private long sourceEnd;
+
+    private int sourceUndos;
+
+    /**
+     * Number of undos performed, so that a snapshot can tell whether the history it was taken at was rewritten.
+     */
+    private int undos;
+
+    /**
+     * Whether {@link #deadlocked} describes the current positions. It is kept up to date by {@link #move(int, int)},
+     * and recomputed for all boxes on demand after an undo.
+     */
+    private boolean deadlockKnown;
+
+    private boolean deadlocked;
+
+    /**
+     * Created on first use, as it keeps scratch space.
+     */
+    private FreezeDetector freezeDetector;
 
     /**
      * Create a running game state from a game map.
@@ -48,21 +145,309 @@ public class GameState {
      */
     public GameState(@NotNull GameMap map) {
         this.map = map;
-        player_loc = map.getInit_player_loc();
-        player = map.getInit_player();
         if(map.getUndoLimit().isPresent()){
             undo = map.getUndoLimit().get();
         }
-        box = map.getInit_box();
-        box_loc = map.getInit_box_loc();
-        effective_loc = map.getEffective_loc();
-        move_history = new ArrayList<>();
-        checkpoint = new ArrayList<>();
-        move_times = new ArrayList<>();
+        width = map.getMaxWidth();
+        final int cells = width * map.getMaxHeight();
+        final int words = (cells + Long.SIZE - 1) / Long.SIZE;
+        boxPlane = new long[words];
+        playerPlane = new long[words];
+        destinationPlane = new long[words];
+        owner = new byte[cells];
+        playerCells = new int[GameMap.MAX_PLAYERS];
+        Arrays.fill(playerCells, -1);
+        goalsByPlayer = new int[GameMap.MAX_PLAYERS];
+        for (int cell = 0; cell < cells; cell++) {
+            final byte who = map.occupantAt(cell);
+            if (who > 0) {
+                set(boxPlane, cell);
+                owner[cell] = (byte) (who - 1);
+                stateHash ^= zobristKey(false, who - 1, cell);
+            } else if (who < 0) {
+                set(playerPlane, cell);
+                owner[cell] = (byte) (-who - 1);
+                playerCells[-who - 1] = cell;
+                stateHash ^= zobristKey(true, -who - 1, cell);
+            }
+            if ((map.terrainAt(cell) & GameMap.DESTINATION) != 0) {
+                set(destinationPlane, cell);
+                destinationCount++;
+                if (who > 0) {
+                    boxesOnGoal++;
+                    goalsByPlayer[who - 1]++;
+                }
+            }
+        }
+        journal = new MoveJournal(undo);
     }
 
     public GameState(){}
 
+    /**
+     * Copy the positions of all entities and the undo quota from another game state, but not its history.
+     * The game map and the destinations never change during a game, so they are shared rather than copied.
+     */
+    private GameState(@NotNull GameState other) {
+        map = other.map;
+        width = other.width;
+        undo = other.undo;
+        boxPlane = other.boxPlane.clone();
+        playerPlane = other.playerPlane.clone();
+        // Destinations never move, so the plane is shared.
+        destinationPlane = other.destinationPlane;
+        owner = other.owner.clone();
+        playerCells = other.playerCells.clone();
+        destinationCount = other.destinationCount;
+        boxesOnGoal = other.boxesOnGoal;
+        goalsByPlayer = other.goalsByPlayer.clone();
+        stateHash = other.stateHash;
+        deadlockKnown = other.deadlockKnown;
+        deadlocked = other.deadlocked;
+    }
+
+    /**
+     * Copy this game state, including its history, so that the copy can be played independently.
+     *
+     * @return the copy.
+     */
+    public @NotNull GameState copy() {
+        return copy(true);
+    }
+
+    /**
+     * Copy this game state so that the copy can be played independently.
+     * Only the dynamic part is duplicated, i.e. the positions of boxes and players and the undo quota,
+     * while the game map is shared. This makes copies cheap enough for tree search or for hosting many games
+     * of the same map.
+     *
+     * @param withHistory whether the copy can undo the moves made so far. Without history, the copy starts with an
+     *                    empty history as if the game had started at the current positions, with the same undo quota.
+     * @return the copy, which can be modified even if this game state is a {@link #snapshot()}.
+     */
+    public @NotNull GameState copy(boolean withHistory) {
+        final var copy = new GameState(this);
+        copy.journal = withHistory && journal != null
+            ? new MoveJournal(journal)
+            : new MoveJournal(map.getUndoLimit().orElse(0));
+        return copy;
+    }
+
+    /**
+     * Take a read-only copy of the current positions of all entities and the undo quota, without history.
+     * The snapshot does not change as this game state goes on, so it can be handed to another thread,
+     * e.g. for rendering. Calling {@link #move(int, int)}, {@link #checkpoint()} or {@link #undo()} on the
+     * snapshot throws {@link UnsupportedOperationException}.
+     * Taking a snapshot of a snapshot returns the same instance.
+     *
+     * @return the snapshot.
+     */
+    public @NotNull GameState snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        final var snapshot = new GameState(this);
+        snapshot.readOnly = true;
+        if (journal != null) {
+            snapshot.source = this;
+            snapshot.sourceEnd = journal.end();
+            snapshot.sourceUndos = undos;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Take a snapshot like {@link #snapshot()}, but refresh a snapshot of this game state that is no longer used
+     * instead of allocating a new one. If the moves made since the recycled snapshot was taken are still in the
+     * history, and nothing was undone meanwhile, only these moves are replayed onto it; otherwise the positions are
+     * copied into its arrays. This makes publishing a snapshot after every move cost about the moves since the
+     * recycled snapshot, e.g. for a render thread handing back the snapshot it has drawn.
+     *
+     * @param recycled A snapshot previously taken from this game state that no one reads anymore, or null.
+     * @return the snapshot, which is {@code recycled} if it could be reused.
+     */
+    public @NotNull GameState snapshot(@Nullable GameState recycled) {
+        if (readOnly) {
+            return this;
+        }
+        if (recycled == null || recycled.source != this) {
+            return snapshot();
+        }
+        final long end = journal.end();
+        if (recycled.sourceUndos == undos && journal.retains(recycled.sourceEnd)
+            && end - recycled.sourceEnd <= recycled.owner.length) {
+            for (long i = recycled.sourceEnd; i < end; i++) {
+                recycled.relocate(journal.fromAt(i), journal.toAt(i));
+            }
+        } else {
+            System.arraycopy(boxPlane, 0, recycled.boxPlane, 0, boxPlane.length);
+            System.arraycopy(playerPlane, 0, recycled.playerPlane, 0, playerPlane.length);
+            System.arraycopy(owner, 0, recycled.owner, 0, owner.length);
+            System.arraycopy(playerCells, 0, recycled.playerCells, 0, playerCells.length);
+            System.arraycopy(goalsByPlayer, 0, recycled.goalsByPlayer, 0, goalsByPlayer.length);
+            recycled.boxesOnGoal = boxesOnGoal;
+            recycled.stateHash = stateHash;
+        }
+        recycled.undo = undo;
+        recycled.deadlockKnown = deadlockKnown;
+        recycled.deadlocked = deadlocked;
+        recycled.sourceEnd = end;
+        recycled.sourceUndos = undos;
+        return recycled;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("the game state is a read-only snapshot");
+        }
+    }
+
+    private static boolean test(long[] plane, int cell) {
+        return (plane[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private static void set(long[] plane, int cell) {
+        plane[cell >>> 6] |= 1L << cell;
+    }
+
+    private static void clear(long[] plane, int cell) {
+        plane[cell >>> 6] &= ~(1L << cell);
+    }
+
+    private int cellOf(Position position) {
+        return pack(position.x(), position.y());
+    }
+
+    /**
+     * Pack a coordinate into the row-major cell index accepted by the packed-coordinate methods,
+     * such as {@link #entityAt(int)} and {@link #move(int, int)}.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return the packed coordinate, or -1 if the coordinate is outside the map.
+     */
+    public int pack(int x, int y) {
+        if (!map.contains(x, y)) {
+            return -1;
+        }
+        return y * width + x;
+    }
+
+    /**
+     * Unpack a packed coordinate produced by {@link #pack(int, int)}.
+     *
+     * @param packed the packed coordinate.
+     * @return the corresponding position.
+     */
+    public @NotNull Position positionOf(int packed) {
+        return Position.of(packed % width, packed / width);
+    }
+
+    /**
+     * Move whatever entity is at cell {@code from} to cell {@code to} without touching the history.
+     */
+    private void relocate(int from, int to) {
+        if (from < 0 || to < 0) {
+            return;
+        }
+        if (test(playerPlane, from)) {
+            clear(playerPlane, from);
+            set(playerPlane, to);
+            playerCells[owner[from]] = to;
+            stateHash ^= zobristKey(true, owner[from], from) ^ zobristKey(true, owner[from], to);
+        } else if (test(boxPlane, from)) {
+            clear(boxPlane, from);
+            set(boxPlane, to);
+            stateHash ^= zobristKey(false, owner[from], from) ^ zobristKey(false, owner[from], to);
+            final int goalDelta = (test(destinationPlane, to) ? 1 : 0) - (test(destinationPlane, from) ? 1 : 0);
+            boxesOnGoal += goalDelta;
+            goalsByPlayer[owner[from]] += goalDelta;
+        } else {
+            return;
+        }
+        owner[to] = owner[from];
+    }
+
+    /**
+     * Get a 64-bit key of the current positions of all boxes, by owner, and of all players.
+     * Game states of the same map with the same positions have the same key, whatever moves led there,
+     * while different positions have different keys but with a chance of about 2^-64.
+     * The undo quota and the history are not part of the key.
+     * <p>
+     * The key is a Zobrist hash, kept up to date in constant time by {@link #move(int, int)} and {@link #undo()},
+     * so it is cheap enough for transposition tables, deduplicating replays or detecting loops.
+     *
+     * @return the key.
+     */
+    public long stateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Get a 64-bit key like {@link #stateHash()}, except that each player counts as standing on the smallest cell
+     * it can walk to, so that positions differing only in where players stand within the area they can reach have
+     * the same key. As in a search over pushes, the players are considered in id order, each one moving to its
+     * smallest cell before the next one walks.
+     * <p>
+     * Unlike {@link #stateHash()}, this visits the areas the players can reach, which takes time proportional to
+     * their size.
+     *
+     * @return the normalized key.
+     */
+    public long normalizedStateHash() {
+        long hash = stateHash;
+        final int height = owner.length / width;
+        final long[] blocked = playerPlane.clone();
+        final long[] reached = new long[boxPlane.length];
+        final int[] queue = new int[owner.length];
+        for (int id = 0; id < playerCells.length; id++) {
+            final int from = playerCells[id];
+            if (from < 0) {
+                continue;
+            }
+            clear(blocked, from);
+            Arrays.fill(reached, 0);
+            set(reached, from);
+            int min = from;
+            int tail = 0;
+            queue[tail++] = from;
+            for (int head = 0; head < tail; head++) {
+                final int cell = queue[head];
+                min = Math.min(min, cell);
+                for (int d = 0; d < DIRECTIONS.length; d++) {
+                    final int x = cell % width + DIRECTION_DX[d];
+                    final int y = cell / width + DIRECTION_DY[d];
+                    if (x < 0 || y < 0 || x >= width || y >= height) {
+                        continue;
+                    }
+                    final int next = y * width + x;
+                    if (!test(reached, next) && CellKind.kindOf(map.terrainAt(next)) == CellKind.EMPTY
+                        && !test(boxPlane, next) && !test(blocked, next)) {
+                        set(reached, next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            set(blocked, min);
+            hash ^= zobristKey(true, id, from) ^ zobristKey(true, id, min);
+        }
+        return hash;
+    }
+
+    /**
+     * The Zobrist key of a box or a player on a cell: the SplitMix64 output for a distinct index of each
+     * combination, so that no table is needed.
+     *
+     * @param player whether the entity is a player rather than a box.
+     * @param id     the id of the player, or of the owner of the box.
+     * @param cell   the row-major cell.
+     */
+    private static long zobristKey(boolean player, int id, int cell) {
+        long z = (((long) cell * GameMap.MAX_PLAYERS + id) * 2 + (player ? 1 : 0) + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
 
     /**
      * Get the current position of the player with the given id.
@@ -71,9 +456,8 @@ public class GameState {
      * @return the current position of the player.
      */
     public @Nullable Position getPlayerPositionById(int id) {
-        // TODO
-        if (player.contains(id)) {
-            return player_loc.get(player.indexOf(id));
+        if (id >= 0 && id < playerCells.length && playerCells[id] >= 0) {
+            return positionOf(playerCells[id]);
         } else {
             return(Position.of(-10000, -10000));
         }
@@ -85,10 +469,13 @@ public class GameState {
      * @return a set of positions of all players.
      */
     public @NotNull Set<Position> getAllPlayerPositions() {
-        // TODO
-       var player_loc_set = new HashSet<Position>();
-        player_loc_set.addAll(player_loc);
-       return player_loc_set;
+        var player_loc_set = new HashSet<Position>();
+        for (int cell : playerCells) {
+            if (cell >= 0) {
+                player_loc_set.add(positionOf(cell));
+            }
+        }
+        return player_loc_set;
     }
 
     /**
@@ -98,20 +485,152 @@ public class GameState {
      * @return the entity object.
      */
     public @Nullable Entity getEntity(@NotNull Position position) {
-        // TODO
-        if (box_loc.contains(position)){
-            return new Box(box.get(box_loc.indexOf(position)));
+        return CellKind.toEntity(cellKind(position.x(), position.y()));
+    }
+
+    /**
+     * Get the content of a cell as a primitive code without creating any object.
+     * This is the allocation-free counterpart of {@link #getEntity(Position)}.
+     *
+     * @param x the horizontal displacement.
+     * @param y the vertical displacement.
+     * @return the {@link CellKind} code of the cell, {@link CellKind#VOID} if the coordinate is outside the map.
+     */
+    public int cellKind(int x, int y) {
+        return cellKindAt(pack(x, y));
+    }
+
+    /**
+     * Get the content of a cell addressed by a packed coordinate.
+     *
+     * @param cell the packed coordinate, see {@link #pack(int, int)}.
+     * @return the {@link CellKind} code of the cell, {@link CellKind#VOID} if the coordinate is outside the map.
+     */
+    public int cellKindAt(int cell) {
+        if (cell < 0 || cell >= owner.length) {
+            return CellKind.VOID;
         }
-        else if (player_loc.contains(position)){
-            return new Player(player.get(player_loc.indexOf(position)));
+        final int terrain = map.terrainAt(cell);
+        if (test(boxPlane, cell)) {
+            return CellKind.BOX | (terrain & CellKind.DESTINATION) | (owner[cell] << CellKind.OWNER_SHIFT);
+        } else if (test(playerPlane, cell)) {
+            return CellKind.PLAYER | (terrain & CellKind.DESTINATION) | (owner[cell] << CellKind.OWNER_SHIFT);
         }
-        else if (map.getEntity(position) instanceof Wall){
-            return new Wall();
+        return terrain;
+    }
+
+    /**
+     * Get the entity at a packed coordinate.
+     *
+     * @param packed the packed coordinate, see {@link #pack(int, int)}.
+     * @return the entity object.
+     */
+    public @Nullable Entity entityAt(int packed) {
+        return CellKind.toEntity(cellKindAt(packed));
+    }
+
+    /**
+     * Get the current packed coordinate of the player with the given id.
+     *
+     * @param id player id.
+     * @return the packed coordinate of the player, or -1 if there is no such player.
+     */
+    public int playerCellById(int id) {
+        return id >= 0 && id < playerCells.length ? playerCells[id] : -1;
+    }
+
+    /**
+     * Find out what a move would do, without changing the game state or its history.
+     * The rules are those applied by {@link AbstractSokobanGame#processAction(hk.ust.comp3021.actions.Action)}:
+     * a player moves onto an empty cell, or pushes one of its own boxes if the cell behind the box is empty,
+     * while walls, the border of the map and boxes of other players stop it. Nothing is allocated.
+     *
+     * @param move the move.
+     * @return the outcome the move would have.
+     */
+    public @NotNull MoveOutcome tryMove(@NotNull Move move) {
+        return tryMove(move.getInitiator(), move.getDx(), move.getDy());
+    }
+
+    /**
+     * Find out what a move would do, without changing the game state or its history, see {@link #tryMove(Move)}.
+     *
+     * @param playerId the id of the player to move.
+     * @param dx       the horizontal displacement, -1, 0 or 1.
+     * @param dy       the vertical displacement, -1, 0 or 1.
+     * @return the outcome the move would have.
+     */
+    public @NotNull MoveOutcome tryMove(int playerId, int dx, int dy) {
+        final int from = playerCellById(playerId);
+        if (from < 0) {
+            return MoveOutcome.PLAYER_NOT_FOUND;
         }
-        else if (effective_loc.contains(position)){
-            return new Empty();
+        final int x = from % width + dx;
+        final int y = from / width + dy;
+        final int target = pack(x, y);
+        if (target < 0) {
+            return MoveOutcome.HIT_WALL;
         }
-        return null;
+        if (test(playerPlane, target)) {
+            return MoveOutcome.HIT_PLAYER;
+        }
+        if (test(boxPlane, target)) {
+            if (owner[target] != playerId) {
+                return MoveOutcome.HIT_WALL;
+            }
+            final int beyond = pack(x + dx, y + dy);
+            if (beyond < 0 || !isVacant(beyond)) {
+                return MoveOutcome.PUSH_BLOCKED;
+            }
+            return MoveOutcome.PUSHED;
+        }
+        return isVacant(target) ? MoveOutcome.MOVED : MoveOutcome.HIT_WALL;
+    }
+
+    /**
+     * Get the directions in which a player can move, without changing the game state or its history.
+     *
+     * @param playerId the id of the player.
+     * @return the set of {@link #UP}, {@link #DOWN}, {@link #LEFT} and {@link #RIGHT} for which
+     * {@link #tryMove(int, int, int)} succeeds, 0 if the player cannot move or does not exist.
+     */
+    public int legalMoves(int playerId) {
+        int directions = 0;
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            if (tryMove(playerId, DIRECTION_DX[i], DIRECTION_DY[i]).isSuccess()) {
+                directions |= DIRECTIONS[i];
+            }
+        }
+        return directions;
+    }
+
+    /**
+     * Whether a cell is floor with neither a box nor a player on it.
+     */
+    private boolean isVacant(int cell) {
+        return CellKind.kindOf(map.terrainAt(cell)) == CellKind.EMPTY
+            && !test(boxPlane, cell) && !test(playerPlane, cell);
+    }
+
+    /**
+     * Check whether a packed coordinate is a box destination.
+     *
+     * @param packed the packed coordinate, see {@link #pack(int, int)}.
+     * @return true if the cell is a box destination.
+     */
+    public boolean isDestination(int packed) {
+        return packed >= 0 && packed < owner.length && test(destinationPlane, packed);
+    }
+
+    /**
+     * Check whether a box on a packed coordinate can never reach a box destination, see {@link GameMap#isDeadSquare(int, int)}.
+     * The squares depend on the terrain only, so they are computed once per game map and shared by all its game states.
+     *
+     * @param packed the packed coordinate, see {@link #pack(int, int)}.
+     * @return true if the cell is a dead square.
+     */
+    public boolean isDeadSquare(int packed) {
+        return packed >= 0 && packed < owner.length && map.isDeadCell(packed);
     }
 
     /**
@@ -121,7 +640,6 @@ public class GameState {
      * @return a set of positions.
      */
     public @NotNull @Unmodifiable Set<Position> getDestinations() {
-        // TODO
         return map.getDestinations();
     }
 
@@ -133,7 +651,6 @@ public class GameState {
      * {@link Optional#empty()} if the game has unlimited undo.
      */
     public Optional<Integer> getUndoQuota() {
-        // TODO
         return Optional.of(undo);
     }
 
@@ -144,13 +661,35 @@ public class GameState {
      * @return true is the game wins.
      */
     public boolean isWin() {
-// TODO
-        for (Position dest: getDestinations()){
-            if (!box_loc.contains(dest)){
-                return false;
-            }
-        }
-        return true;
+        return boxesOnGoal == destinationCount;
+    }
+
+    /**
+     * Get the number of boxes currently placed on a box destination.
+     *
+     * @return the number of boxes on destinations.
+     */
+    public int boxesOnGoal() {
+        return boxesOnGoal;
+    }
+
+    /**
+     * Get the number of boxes of the given player currently placed on a box destination.
+     *
+     * @param playerId the id of the player owning the boxes.
+     * @return the number of boxes of the player on destinations.
+     */
+    public int boxesOnGoal(int playerId) {
+        return playerId >= 0 && playerId < goalsByPlayer.length ? goalsByPlayer[playerId] : 0;
+    }
+
+    /**
+     * Get the number of box destinations in the game map.
+     *
+     * @return the number of box destinations.
+     */
+    public int destinationCount() {
+        return destinationCount;
     }
 
     /**
@@ -161,21 +700,61 @@ public class GameState {
      * @param from The current position of the entity to move.
      * @param to   The position to move the entity to.
      */
-
-
     public void move(Position from, Position to) {
-        // TODO
-        ArrayList<Position> move = new ArrayList<>();
-        move.add(from);
-        move.add(to);
-        if (player_loc.contains(from)){
-            player_loc.set(player_loc.indexOf(from), to);
+        move(cellOf(from), cellOf(to));
+    }
+
+    /**
+     * Move the entity from one packed coordinate to another.
+     * This is the packed-coordinate counterpart of {@link #move(Position, Position)}.
+     *
+     * @param from The current packed coordinate of the entity to move.
+     * @param to   The packed coordinate to move the entity to.
+     */
+    public void move(int from, int to) {
+        checkWritable();
+        if (from < 0 || to < 0) {
+            return;
         }
-        else if (box_loc.contains(from)){
-            box_loc.set(box_loc.indexOf(from), to);
+        relocate(from, to);
+        journal.record(from, to);
+        if (deadlockKnown && !deadlocked && test(boxPlane, to)) {
+            deadlocked = freezeDetector().isDeadlock(to);
         }
+    }
 
-        move_history.add(move);
+    /**
+     * Check whether the level can no longer be solved from the current positions, as some box not on a destination
+     * can never be moved again, or can never reach a destination, see {@link FreezeDetector}.
+     * <p>
+     * The check is incremental: each {@link #move(int, int)} of a box only examines the boxes around it,
+     * assuming the moves follow the rules, so that a frozen box never moves again. Only after an undo are all boxes
+     * examined again. This makes the check cheap enough to prune a search or to stop a game early.
+     *
+     * @return true if the game is deadlocked.
+     */
+    public boolean isDeadlocked() {
+        if (!deadlockKnown) {
+            deadlocked = false;
+            for (int word = 0; word < boxPlane.length && !deadlocked; word++) {
+                for (long bits = boxPlane[word]; bits != 0 && !deadlocked; bits &= bits - 1) {
+                    deadlocked = freezeDetector().isDeadlock(word << 6 | Long.numberOfTrailingZeros(bits));
+                }
+            }
+            deadlockKnown = true;
+        }
+        return deadlocked;
+    }
+
+    GameMap getMap() {
+        return map;
+    }
+
+    private FreezeDetector freezeDetector() {
+        if (freezeDetector == null) {
+            freezeDetector = new FreezeDetector(map, cell -> test(boxPlane, cell) ? owner[cell] : -1);
+        }
+        return freezeDetector;
     }
 
     /**
@@ -187,10 +766,8 @@ public class GameState {
      * Every undo actions reverts the game state to the last checkpoint.
      */
     public void checkpoint() {
-
-        checkpoint.addAll(move_history);
-        move_times.add(move_history.size());
-        move_history.removeAll(move_history);
+        checkWritable();
+        journal.checkpoint();
     }
 
     /**
@@ -201,23 +778,19 @@ public class GameState {
      * revert to the initial game state.
      */
     public void undo() {
-        // TODO
-        if (!checkpoint.isEmpty()){
-            for (int i = 0; i < move_times.get(move_times.size()-1); i++){
-                Position from = checkpoint.get(checkpoint.size()-1).get(1);
-                Position to = checkpoint.get(checkpoint.size()-1).get(0);
-                if (player_loc.contains(from)){
-                    player_loc.set(player_loc.indexOf(from), to);
-                }
-                else if (box_loc.contains(from)){
-                    box_loc.set(box_loc.indexOf(from), to);
-                }
-                checkpoint.remove(checkpoint.size()-1);
-            }
-            move_times.remove(move_times.size()-1);
-            if (undo != -1){
-                undo--;
-            }
+        checkWritable();
+        final long target = journal.beginUndo();
+        if (target < 0) {
+            return;
+        }
+        for (long i = journal.end() - 1; i >= target; i--) {
+            relocate(journal.toAt(i), journal.fromAt(i));
+        }
+        journal.truncate(target);
+        undos++;
+        deadlockKnown = false;
+        if (undo != -1){
+            undo--;
         }
     }
 
@@ -228,7 +801,6 @@ public class GameState {
      * @return maximum width.
      */
     public int getMapMaxWidth() {
-        // TODO
         return map.getMaxWidth();
     }
 
@@ -239,7 +811,6 @@ public class GameState {
      * @return maximum height.
      */
     public int getMapMaxHeight() {
-        // TODO
         return map.getMaxHeight();
     }
 }
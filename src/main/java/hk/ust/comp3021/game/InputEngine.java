@@ -15,4 +15,14 @@ public interface InputEngine {
      */
     @NotNull
     Action fetchAction();
+
+    /**
+     * Check whether actions that were input together with the last fetched one are still waiting to be fetched,
+     * e.g. the rest of a line of moves. The game may delay rendering until the batch is used up.
+     *
+     * @return whether {@link #fetchAction()} can return an action without waiting for new input.
+     */
+    default boolean hasPendingActions() {
+        return false;
+    }
 }
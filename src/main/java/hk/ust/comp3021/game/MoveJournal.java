@@ -0,0 +1,188 @@
+package hk.ust.comp3021.game;
+
+/**
+ * The undo history of a {@link GameState}.
+ * <p>
+ * Every move is recorded as a pair of packed coordinates in a growable {@code int} ring,
+ * and every checkpoint as the logical offset of the move following it.
+ * When the history is bounded, only the most recent checkpoints are retained and the moves
+ * before the oldest retained checkpoint are dropped, so long sessions use constant memory.
+ * <p>
+ * Offsets are logical move indices that only ever increase; they are mapped onto the rings with a mask.
+ */
+final class MoveJournal {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Maximum number of retained checkpoints, -1 if unbounded and 0 if nothing is recorded at all.
+     */
+    private final int maxCheckpoints;
+
+    /**
+     * Ring of recorded moves, move {@code i} occupies slots {@code 2 * i} and {@code 2 * i + 1}.
+     */
+    private int[] moves = new int[2 * INITIAL_CAPACITY];
+
+    /**
+     * Ring of checkpoint offsets, in increasing order.
+     */
+    private long[] marks = new long[INITIAL_CAPACITY];
+
+    /**
+     * Offset of the oldest retained move.
+     */
+    private long start;
+
+    /**
+     * Offset past the newest recorded move.
+     */
+    private long end;
+
+    /**
+     * Index of the oldest retained checkpoint in {@link #marks}, before masking.
+     */
+    private long firstMark;
+
+    /**
+     * Number of retained checkpoints.
+     */
+    private int markCount;
+
+    /**
+     * @param undoLimit the undo limit of the game, as in {@link GameMap#getUndoLimit()}.
+     */
+    MoveJournal(int undoLimit) {
+        this.maxCheckpoints = undoLimit;
+    }
+
+    /**
+     * Copy another journal, so that both can go on independently.
+     *
+     * @param other the journal to copy.
+     */
+    MoveJournal(MoveJournal other) {
+        this.maxCheckpoints = other.maxCheckpoints;
+        this.moves = other.moves.clone();
+        this.marks = other.marks.clone();
+        this.start = other.start;
+        this.end = other.end;
+        this.firstMark = other.firstMark;
+        this.markCount = other.markCount;
+    }
+
+    /**
+     * Record a move.
+     *
+     * @param from the packed coordinate the entity moved from.
+     * @param to   the packed coordinate the entity moved to.
+     */
+    void record(int from, int to) {
+        if (maxCheckpoints == 0) {
+            return;
+        }
+        if (2 * (end - start) == moves.length) {
+            moves = grow(moves, start, end, 2);
+        }
+        final int slot = (int) (2 * end) & (moves.length - 1);
+        moves[slot] = from;
+        moves[slot + 1] = to;
+        end++;
+    }
+
+    /**
+     * Record a checkpoint after the newest move.
+     * Recording a checkpoint when nothing moved since the last one has no effect.
+     */
+    void checkpoint() {
+        if (maxCheckpoints == 0 || end == (markCount == 0 ? start : lastMark())) {
+            return;
+        }
+        if (markCount == maxCheckpoints) {
+            start = marks[(int) firstMark & (marks.length - 1)];
+            firstMark++;
+            markCount--;
+        }
+        if (markCount == marks.length) {
+            marks = grow(marks, firstMark, firstMark + markCount);
+            firstMark = 0;
+        }
+        marks[(int) (firstMark + markCount) & (marks.length - 1)] = end;
+        markCount++;
+    }
+
+    /**
+     * Find where an undo should revert to, and forget the checkpoint being undone.
+     * If moves were recorded since the last checkpoint, the undo reverts them;
+     * otherwise it reverts the moves between the last two checkpoints.
+     *
+     * @return the offset to revert to, or -1 if there is nothing to undo.
+     */
+    long beginUndo() {
+        if (markCount > 0 && end == lastMark()) {
+            markCount--;
+        }
+        final long target = markCount == 0 ? start : lastMark();
+        return target < end ? target : -1;
+    }
+
+    /**
+     * @return the offset past the newest recorded move.
+     */
+    long end() {
+        return end;
+    }
+
+    /**
+     * @param offset an offset at or before {@link #end()}.
+     * @return whether every move from the offset on is retained, which is never the case if nothing is recorded.
+     */
+    boolean retains(long offset) {
+        return maxCheckpoints != 0 && offset >= start;
+    }
+
+    /**
+     * @param offset offset of a retained move.
+     * @return the packed coordinate the entity moved from.
+     */
+    int fromAt(long offset) {
+        return moves[(int) (2 * offset) & (moves.length - 1)];
+    }
+
+    /**
+     * @param offset offset of a retained move.
+     * @return the packed coordinate the entity moved to.
+     */
+    int toAt(long offset) {
+        return moves[(int) (2 * offset + 1) & (moves.length - 1)];
+    }
+
+    /**
+     * Drop every move from the given offset on.
+     *
+     * @param offset the new end offset.
+     */
+    void truncate(long offset) {
+        end = offset;
+    }
+
+    private long lastMark() {
+        return marks[(int) (firstMark + markCount - 1) & (marks.length - 1)];
+    }
+
+    private static int[] grow(int[] ring, long from, long to, int stride) {
+        final int[] grown = new int[ring.length * 2];
+        for (long i = from * stride; i < to * stride; i++) {
+            grown[(int) i & (grown.length - 1)] = ring[(int) i & (ring.length - 1)];
+        }
+        return grown;
+    }
+
+    private static long[] grow(long[] ring, long from, long to) {
+        final long[] grown = new long[ring.length * 2];
+        for (long i = from; i < to; i++) {
+            grown[(int) (i - from)] = ring[(int) i & (ring.length - 1)];
+        }
+        return grown;
+    }
+}
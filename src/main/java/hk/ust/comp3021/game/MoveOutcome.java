@@ -0,0 +1,59 @@
+package hk.ust.comp3021.game;
+
+import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The outcome of resolving a move of a player.
+ */
+public enum MoveOutcome {
+    /**
+     * The player moved to an empty cell.
+     */
+    MOVED(null),
+    /**
+     * The player pushed one of its boxes and moved to the cell the box was on.
+     */
+    PUSHED(null),
+    /**
+     * The player ran into a wall, the border of the map, or a box of another player, which behaves as a wall.
+     */
+    HIT_WALL("You hit a wall."),
+    /**
+     * The box in front of the player cannot move as something other than an empty cell is behind it.
+     */
+    PUSH_BLOCKED("Failed to push the box."),
+    /**
+     * The player ran into another player.
+     */
+    HIT_PLAYER("You hit another player."),
+    /**
+     * The player is not in the map.
+     */
+    PLAYER_NOT_FOUND(StringResources.PLAYER_NOT_FOUND),
+    /**
+     * The push was refused as it would leave the box on a dead square, see {@link TrainingMode#REJECT}.
+     */
+    DEAD_SQUARE(StringResources.DEAD_SQUARE_MESSAGE);
+
+    @Nullable
+    private final String reason;
+
+    MoveOutcome(@Nullable String reason) {
+        this.reason = reason;
+    }
+
+    /**
+     * @return Whether the player moved.
+     */
+    public boolean isSuccess() {
+        return reason == null;
+    }
+
+    /**
+     * @return The reason of the failure shown to the players, or null if the move succeeded.
+     */
+    public @Nullable String getReason() {
+        return reason;
+    }
+}
@@ -2,10 +2,17 @@ package hk.ust.comp3021.game;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.ref.WeakReference;
+
 /**
  * Denotes a position on a game map.
  * The original point is at top-left corner.
  * The coordinates start from 0;
+ * <p>
+ * Positions inside the most recently created game map, and inside earlier maps still in use as long as all of them
+ * fit in about a million positions, are interned, so {@link #of(int, int)} does not allocate for them.
+ * The interned positions are only weakly reachable from this class and kept alive by the maps covering them,
+ * so they are garbage-collected together with the maps.
  *
  * @param x The horizontal displacement.
  * @param y The vertical displacement.
@@ -13,14 +20,72 @@ import org.jetbrains.annotations.NotNull;
 public record Position(int x, int y) {
 
     /**
-     * Creates a new position.
+     * Upper bound on the number of interned positions, maps larger than this only have their top rows interned.
+     */
+    private static final int MAX_POOLED = 1 << 20;
+
+    /**
+     * Interned positions indexed by {@code [y][x]}, or null once no map holds them anymore.
+     * The arrays are never modified once published, only replaced, so readers need no locking.
+     */
+    private static volatile WeakReference<Position[][]> pool = new WeakReference<>(null);
+
+    /**
+     * Get the position at a coordinate, which is the interned instance if the coordinate is interned.
      *
      * @param x The horizontal displacement.
      * @param y The vertical displacement.
-     * @return The newly created position.
+     * @return The interned position, or a new one.
      */
     public static @NotNull Position of(int x, int y) {
+        final Position[][] rows = pool.get();
+        if (rows != null && y >= 0 && y < rows.length && x >= 0 && x < rows[y].length) {
+            return rows[y][x];
+        }
         return new Position(x, y);
     }
 
+    /**
+     * Make sure positions within a {@code width} x {@code height} map are interned.
+     *
+     * @param width  The width of the map.
+     * @param height The height of the map.
+     * @return The interned positions, which the map must keep for them to stay interned while it is in use.
+     */
+    static synchronized Position[][] reserve(int width, int height) {
+        Position[][] rows = pool.get();
+        if (rows == null) {
+            rows = new Position[0][];
+        }
+        final int oldHeight = rows.length;
+        final int oldWidth = oldHeight == 0 ? 0 : rows[0].length;
+        // The part of this map that may be interned.
+        final int mapWidth = Math.min(width, MAX_POOLED);
+        final int mapHeight = Math.min(height, MAX_POOLED / Math.max(mapWidth, 1));
+        if (mapWidth <= oldWidth && mapHeight <= oldHeight) {
+            return rows;
+        }
+        // Keep covering the maps interned so far while everything fits, otherwise start over with this map,
+        // so that the maps created earlier cannot take the whole budget.
+        int newWidth = Math.max(oldWidth, mapWidth);
+        int newHeight = Math.max(oldHeight, mapHeight);
+        if ((long) newWidth * newHeight > MAX_POOLED) {
+            newWidth = mapWidth;
+            newHeight = mapHeight;
+        }
+        final Position[][] grown = new Position[newHeight][];
+        for (int y = 0; y < newHeight; y++) {
+            final Position[] row = new Position[newWidth];
+            final int kept = y < oldHeight ? Math.min(oldWidth, newWidth) : 0;
+            if (kept > 0) {
+                System.arraycopy(rows[y], 0, row, 0, kept);
+            }
+            for (int x = kept; x < newWidth; x++) {
+                row[x] = new Position(x, y);
+            }
+            grown[y] = row;
+        }
+        pool = new WeakReference<>(grown);
+        return grown;
+    }
 }
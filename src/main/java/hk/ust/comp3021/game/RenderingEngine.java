@@ -1,6 +1,7 @@
 package hk.ust.comp3021.game;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * An engine for rendering the game state to the players.
@@ -20,4 +21,13 @@ public interface RenderingEngine {
      * @param content The message
      */
     void message(@NotNull String content);
+
+    /**
+     * Restrict rendering to a window around a player, so that the cost of a frame depends on the window size
+     * rather than the map size. Engines that always render the whole map may ignore this.
+     *
+     * @param viewport The window to render, or null to render the whole map.
+     */
+    default void setViewport(@Nullable Viewport viewport) {
+    }
 }
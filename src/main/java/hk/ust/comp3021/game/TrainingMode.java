@@ -0,0 +1,20 @@
+package hk.ust.comp3021.game;
+
+/**
+ * How a game treats pushes that leave a box on a dead square, i.e. a square from which the box can never reach
+ * a box destination, see {@link GameMap#isDeadSquare(int, int)}.
+ */
+public enum TrainingMode {
+    /**
+     * Dead squares are not checked.
+     */
+    OFF,
+    /**
+     * Such pushes are applied, with a warning for the players.
+     */
+    FLAG,
+    /**
+     * Such pushes are refused and fail with {@link MoveOutcome#DEAD_SQUARE}.
+     */
+    REJECT
+}
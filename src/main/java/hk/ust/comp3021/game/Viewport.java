@@ -0,0 +1,47 @@
+package hk.ust.comp3021.game;
+
+/**
+ * A window of the game map centered on a player, used to render only part of a large map.
+ * The window is clamped to the map, so it stops scrolling when the player approaches the border.
+ *
+ * @param width    The number of columns in the window.
+ * @param height   The number of rows in the window.
+ * @param playerId The id of the player to follow.
+ */
+public record Viewport(int width, int height, int playerId) {
+
+    /**
+     * @throws IllegalArgumentException if the width or the height is not positive.
+     */
+    public Viewport {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("viewport size must be positive");
+        }
+    }
+
+    /**
+     * Get the first column of the window.
+     *
+     * @param center   The column to center on.
+     * @param mapWidth The width of the map.
+     * @return The first visible column.
+     */
+    public int left(int center, int mapWidth) {
+        return clamp(center - width / 2, mapWidth - width);
+    }
+
+    /**
+     * Get the first row of the window.
+     *
+     * @param center    The row to center on.
+     * @param mapHeight The height of the map.
+     * @return The first visible row.
+     */
+    public int top(int center, int mapHeight) {
+        return clamp(center - height / 2, mapHeight - height);
+    }
+
+    private static int clamp(int origin, int max) {
+        return Math.max(0, Math.min(origin, max));
+    }
+}
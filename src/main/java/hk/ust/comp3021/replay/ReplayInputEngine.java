@@ -0,0 +1,285 @@
+package hk.ust.comp3021.replay;
+
+import hk.ust.comp3021.actions.*;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.InputEngine;
+import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An input engine that streams recorded actions, e.g. to verify a solution or to reproduce a game.
+ * <p>
+ * Two formats are accepted, told apart by the first bytes of the input:
+ * <li>
+ * A binary action log: the magic number {@link #MAGIC} and the format version {@link #VERSION},
+ * followed by one byte per action holding the player id in the upper five bits and the action in the lower three,
+ * see {@link #encode(Action)}.
+ * </li>
+ * <li>
+ * LURD text: the letters {@code l}, {@code u}, {@code r} and {@code d} in any case move the current player
+ * left, up, right and down, {@code -} undoes, and {@code p} followed by a player id, e.g. {@code p1}, changes
+ * the current player, which is initially player 0. Blanks are ignored and {@code #} starts a comment running
+ * to the end of the line. Any other character is an {@link InvalidInput}.
+ * </li>
+ * <p>
+ * The end of the input is an {@link Exit}.
+ */
+public class ReplayInputEngine implements InputEngine, Closeable {
+
+    /**
+     * Magic number at the start of a binary action log, the ASCII text "SACT".
+     */
+    public static final int MAGIC = 0x53414354;
+
+    /**
+     * Version of the binary action log format.
+     */
+    public static final byte VERSION = 1;
+
+    private static final int UP = 0;
+    private static final int DOWN = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+    private static final int UNDO = 4;
+    private static final int EXIT = 5;
+    private static final int KIND_BITS = 3;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    /**
+     * The actions of every player indexed by player id and kind, shared as actions are immutable.
+     */
+    private static final Action[][] ACTIONS = new Action[GameMap.MAX_PLAYERS][];
+
+    static {
+        for (int id = 0; id < GameMap.MAX_PLAYERS; id++) {
+            ACTIONS[id] = new Action[]{
+                new Move.Up(id), new Move.Down(id), new Move.Left(id), new Move.Right(id), new Undo(id), new Exit(id),
+            };
+        }
+    }
+
+    private final InputStream input;
+
+    private final boolean binary;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * The player performing the following LURD moves.
+     */
+    private int player;
+
+    /**
+     * @param input The stream of recorded actions, in either format.
+     * @throws IOException When there is an issue reading the stream.
+     * @throws IllegalArgumentException if the stream is a binary action log of an unsupported version.
+     */
+    public ReplayInputEngine(@NotNull InputStream input) throws IOException {
+        this.input = input;
+        try {
+            fill(Integer.BYTES + 1);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        this.binary = limit >= Integer.BYTES && (buffer[0] & 0xFF) == (MAGIC >>> 24) && buffer[1] == (byte) (MAGIC >>> 16)
+            && buffer[2] == (byte) (MAGIC >>> 8) && buffer[3] == (byte) MAGIC;
+        if (binary) {
+            if (limit <= Integer.BYTES || buffer[Integer.BYTES] != VERSION) {
+                throw new IllegalArgumentException("unsupported action log version");
+            }
+            position = Integer.BYTES + 1;
+        }
+    }
+
+    /**
+     * Open a recorded file in either format.
+     *
+     * @param replayFile The file of recorded actions.
+     * @return The input engine, which must be closed after use.
+     * @throws IOException When there is an issue reading the file.
+     */
+    public static @NotNull ReplayInputEngine open(@NotNull Path replayFile) throws IOException {
+        final var input = Files.newInputStream(replayFile);
+        try {
+            return new ReplayInputEngine(input);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Encode an action as a byte of the binary action log.
+     *
+     * @param action The action to encode.
+     * @return The encoded action.
+     * @throws IllegalArgumentException if the action is an {@link InvalidInput} or its player id is out of range.
+     */
+    public static byte encode(@NotNull Action action) {
+        final int id = action.getInitiator();
+        if (id < 0 || id >= GameMap.MAX_PLAYERS) {
+            throw new IllegalArgumentException("invalid player id " + id);
+        }
+        final int kind = switch (action) {
+            case Move.Up ignored -> UP;
+            case Move.Down ignored -> DOWN;
+            case Move.Left ignored -> LEFT;
+            case Move.Right ignored -> RIGHT;
+            case Undo ignored -> UNDO;
+            case Exit ignored -> EXIT;
+            case InvalidInput ignored -> throw new IllegalArgumentException("invalid input cannot be recorded");
+        };
+        return (byte) (id << KIND_BITS | kind);
+    }
+
+    /**
+     * Write a binary action log.
+     *
+     * @param actions The actions to write, see {@link #encode(Action)}.
+     * @param output  The stream to write to.
+     * @throws IOException When there is an issue writing the stream.
+     */
+    public static void writeBinary(@NotNull Iterable<? extends Action> actions, @NotNull OutputStream output) throws IOException {
+        output.write(new byte[]{(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC, VERSION});
+        final byte[] chunk = new byte[4096];
+        int length = 0;
+        for (final var action : actions) {
+            chunk[length++] = encode(action);
+            if (length == chunk.length) {
+                output.write(chunk, 0, length);
+                length = 0;
+            }
+        }
+        output.write(chunk, 0, length);
+    }
+
+    /**
+     * Fetch the next recorded action.
+     *
+     * @return the action, or an {@link Exit} at the end of the input.
+     * @throws UncheckedIOException When there is an issue reading the input.
+     */
+    @Override
+    public @NotNull Action fetchAction() {
+        return binary ? nextBinary() : nextText();
+    }
+
+    private Action nextBinary() {
+        final int code = next();
+        if (code < 0) {
+            return ACTIONS[0][EXIT];
+        }
+        final int id = code >>> KIND_BITS;
+        final int kind = code & KIND_MASK;
+        if (id >= GameMap.MAX_PLAYERS || kind > EXIT) {
+            return new InvalidInput(0, StringResources.INVALID_INPUT_MESSAGE);
+        }
+        return ACTIONS[id][kind];
+    }
+
+    private Action nextText() {
+        while (true) {
+            final int c = next();
+            switch (c) {
+                case -1:
+                    return ACTIONS[player][EXIT];
+                case ' ', '\t', '\r', '\n':
+                    continue;
+                case '#':
+                    for (int skipped = next(); skipped >= 0 && skipped != '\n'; skipped = next()) {
+                        // skip the comment
+                    }
+                    continue;
+                case 'u', 'U':
+                    return ACTIONS[player][UP];
+                case 'd', 'D':
+                    return ACTIONS[player][DOWN];
+                case 'l', 'L':
+                    return ACTIONS[player][LEFT];
+                case 'r', 'R':
+                    return ACTIONS[player][RIGHT];
+                case '-':
+                    return ACTIONS[player][UNDO];
+                case 'p', 'P':
+                    if (!selectPlayer()) {
+                        return new InvalidInput(player, StringResources.INVALID_INPUT_MESSAGE);
+                    }
+                    continue;
+                default:
+                    return new InvalidInput(player, StringResources.INVALID_INPUT_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Read the player id following a player selector.
+     *
+     * @return whether a valid player id was read.
+     */
+    private boolean selectPlayer() {
+        int id = -1;
+        while (peek() >= '0' && peek() <= '9') {
+            id = (id < 0 ? 0 : 10 * id) + (next() - '0');
+            if (id >= GameMap.MAX_PLAYERS) {
+                return false;
+            }
+        }
+        if (id < 0) {
+            return false;
+        }
+        player = id;
+        return true;
+    }
+
+    private int peek() {
+        if (position == limit) {
+            fill(1);
+        }
+        return position < limit ? buffer[position] & 0xFF : -1;
+    }
+
+    private int next() {
+        final int c = peek();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * Refill the buffer until at least {@code count} bytes are buffered or the input ends.
+     */
+    private void fill(int count) {
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        try {
+            while (limit < count) {
+                final int read = input.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    return;
+                }
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
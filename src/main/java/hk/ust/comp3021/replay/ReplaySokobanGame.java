@@ -0,0 +1,122 @@
+package hk.ust.comp3021.replay;
+
+import hk.ust.comp3021.actions.Action;
+import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.game.AbstractSokobanGame;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.InputEngine;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.utils.StringResources;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A Sokoban game fast-forwarding through recorded actions without rendering the intermediate states.
+ * <p>
+ * The game applies actions until the input ends, the game is won, or a given number of steps have been applied.
+ * Only then the final state is rendered once, followed by a summary, so that a long replay costs no more
+ * than processing its actions. A {@link ReplayInputEngine} is closed when the replay stops. The outcome can also be checked with {@link #getSteps()},
+ * {@link #getFailedSteps()} and {@link #getFirstFailure()}.
+ */
+public class ReplaySokobanGame extends AbstractSokobanGame {
+
+    /**
+     * Step limit meaning to replay until the input ends or the game is won.
+     */
+    public static final long UNTIL_END = -1;
+
+    private final InputEngine inputEngine;
+
+    @Nullable
+    private final RenderingEngine renderingEngine;
+
+    private final long untilStep;
+
+    private long steps;
+
+    private long failedSteps;
+
+    @Nullable
+    private ActionResult.Failed firstFailure;
+
+    /**
+     * @param gameState       The game state.
+     * @param inputEngine     The engine supplying the recorded actions, usually a {@link ReplayInputEngine}.
+     * @param renderingEngine The engine rendering the final state, or null to run headless.
+     * @param untilStep       The number of actions to apply before stopping, or {@link #UNTIL_END}.
+     */
+    public ReplaySokobanGame(@NotNull GameState gameState, @NotNull InputEngine inputEngine,
+                             @Nullable RenderingEngine renderingEngine, long untilStep) {
+        super(gameState);
+        this.inputEngine = inputEngine;
+        this.renderingEngine = renderingEngine;
+        this.untilStep = untilStep;
+    }
+
+    @Override
+    public void run() {
+        while (untilStep == UNTIL_END || steps < untilStep) {
+            final Action action = inputEngine.fetchAction();
+            if (action instanceof Exit) {
+                break;
+            }
+            final var actionResult = processAction(action);
+            steps++;
+            if (actionResult instanceof ActionResult.Failed fail) {
+                failedSteps++;
+                if (firstFailure == null) {
+                    firstFailure = fail;
+                }
+            }
+            if (shouldStop()) {
+                break;
+            }
+        }
+        if (inputEngine instanceof ReplayInputEngine replayInputEngine) {
+            try {
+                replayInputEngine.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (renderingEngine != null) {
+            renderingEngine.render(state);
+            renderingEngine.message(String.format(StringResources.REPLAY_SUMMARY_TEMPLATE, steps, failedSteps));
+            if (state.isWin()) {
+                renderingEngine.message(StringResources.WIN_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * @return The number of actions applied, including failed ones but not the final {@link Exit}.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The number of actions that failed.
+     */
+    public long getFailedSteps() {
+        return failedSteps;
+    }
+
+    /**
+     * @return The first failed action, or null if all actions succeeded.
+     */
+    public @Nullable ActionResult.Failed getFirstFailure() {
+        return firstFailure;
+    }
+
+    /**
+     * @return Whether the replay solved the game.
+     */
+    public boolean isSolved() {
+        return state.isWin();
+    }
+}
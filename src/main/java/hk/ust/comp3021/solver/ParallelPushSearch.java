@@ -0,0 +1,311 @@
+package hk.ust.comp3021.solver;
+
+import java.io.Serial;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A breadth-first search over pushes expanding each depth in parallel on a {@link ForkJoinPool}, see {@link Solver}.
+ * <p>
+ * The search proceeds one depth at a time: the states of a depth are split into tasks that expand them into the
+ * next depth, and idle workers steal tasks from busy ones. Each worker has its own {@link SearchSpace.Expander},
+ * while the level data is shared read-only. Visited states are only recorded as 64-bit hashes in a
+ * {@link VisitedSet}, and the states themselves are kept per depth with the index of their parent for
+ * reconstructing the solution. Since the whole of a depth is expanded before the next one, the solution found still
+ * has the fewest pushes, although which of several such solutions is found may differ between runs.
+ */
+final class ParallelPushSearch {
+
+    /**
+     * The smallest number of states expanded by a single task.
+     */
+    private static final int MIN_TASK_SIZE = 64;
+
+    private static final int TIME_CHECK_INTERVAL = 256;
+
+    private static final int INITIAL_VISITED_CAPACITY = 1 << 12;
+
+    private final SearchSpace space;
+
+    private final int length;
+
+    private final ForkJoinPool pool;
+
+    private final long deadline;
+
+    private final long memoryLimit;
+
+    private final long startTime;
+
+    /**
+     * Only replaced between depths, when no task is adding to it.
+     */
+    private VisitedSet visited;
+
+    /**
+     * The states of each depth, the root being depth 0.
+     */
+    private final List<Depth> depths = new ArrayList<>();
+
+    /**
+     * Bytes held by the states of all depths, including the one being expanded into.
+     */
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    private final AtomicLong exploredStates = new AtomicLong();
+
+    /**
+     * Set by the first task that stops the search, with the reason.
+     */
+    private final AtomicReference<Outcome> outcome = new AtomicReference<>();
+
+    private final ThreadLocal<SearchSpace.Expander> expanders;
+
+    /**
+     * Every expander handed out by {@link #expanders}, to tell whether any of them was blocked by a player.
+     */
+    private final Queue<SearchSpace.Expander> expanderList = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Why a search stopped before expanding a whole depth.
+     *
+     * @param status the status of the result.
+     * @param parent for a solution, the index of the solved state's parent in the depth being expanded.
+     * @param push   for a solution, the push from the parent to the solved state.
+     */
+    private record Outcome(SolverResult.Status status, int parent, int push) {
+    }
+
+    /**
+     * The states at one depth, stored like in a {@link StateTable}, with the index of each state's parent in the
+     * previous depth and the push leading to it.
+     */
+    private record Depth(int[] states, int[] parents, int[] pushes, int size) {
+        long memoryUsage() {
+            return 4L * (states.length + parents.length + pushes.length);
+        }
+    }
+
+    /**
+     * @param pool the pool expanding the states, which is not shut down by the search.
+     */
+    ParallelPushSearch(SearchSpace space, ForkJoinPool pool, Duration timeLimit, long memoryLimit) {
+        this.space = space;
+        this.length = space.stateLength();
+        this.pool = pool;
+        this.startTime = System.nanoTime();
+        this.deadline = startTime + timeLimit.toNanos();
+        this.memoryLimit = memoryLimit;
+        this.visited = new VisitedSet(Math.min(INITIAL_VISITED_CAPACITY, VisitedSet.capacityFor(memoryLimit / 2)));
+        this.expanders = ThreadLocal.withInitial(() -> {
+            final var expander = space.new Expander();
+            expanderList.add(expander);
+            return expander;
+        });
+        final int[] root = space.root();
+        visited.add(VisitedSet.hash(root, 0, length));
+        exploredStates.incrementAndGet();
+        final var depth = new Depth(root, new int[]{-1}, new int[]{0}, 1);
+        depths.add(depth);
+        storedBytes.addAndGet(depth.memoryUsage());
+    }
+
+    SolverResult run() {
+        if (space.isSolved(depths.get(0).states(), 0)) {
+            return result(SolverResult.Status.SOLVED, null);
+        }
+        while (true) {
+            final var current = depths.get(depths.size() - 1);
+            if (current.size() == 0) {
+                final boolean blocked = expanderList.stream().anyMatch(SearchSpace.Expander::wasBlockedByPlayer);
+                return result(blocked ? SolverResult.Status.INCOMPLETE : SolverResult.Status.UNSOLVABLE, null);
+            }
+            reserve(current);
+            final var next = pool.invoke(new Expand(current, 0, current.size()));
+            final var stop = outcome.get();
+            if (stop != null) {
+                return result(stop.status(), stop);
+            }
+            depths.add(next.toDepth());
+        }
+    }
+
+    /**
+     * Grow the visited set so that it can hold every child of a depth at a load of at most 3/4,
+     * but into no more than half of the memory budget; the other half is for the states of each depth.
+     */
+    private void reserve(Depth depth) {
+        final long children = (long) depth.size() * 4 * space.boxCount;
+        final long needed = (exploredStates.get() + children) / 3 * 4 + 1;
+        final int capacity = (int) Math.min(VisitedSet.capacityFor(memoryLimit / 2),
+            Long.highestOneBit(Math.min(needed, 1L << 30) - 1) << 1);
+        if (capacity > visited.capacity()) {
+            visited = visited.resize(capacity);
+        }
+    }
+
+    /**
+     * Expand a range of states of a depth, splitting the range while it is large enough to share.
+     */
+    private final class Expand extends RecursiveTask<Children> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Tasks never leave the pool they run on, so the depth is not serialized.
+         */
+        private final transient Depth depth;
+
+        private final int from;
+
+        private final int to;
+
+        Expand(Depth depth, int from, int to) {
+            this.depth = depth;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Children compute() {
+            final int taskSize = Math.max(MIN_TASK_SIZE, depth.size() / (8 * pool.getParallelism()));
+            if (to - from > taskSize) {
+                final int middle = (from + to) >>> 1;
+                final var right = new Expand(depth, middle, to);
+                right.fork();
+                final var left = new Expand(depth, from, middle).compute();
+                return left.append(right.join());
+            }
+            final var children = new Children(length);
+            final var expander = expanders.get();
+            for (int index = from; index < to && outcome.get() == null; index++) {
+                if ((index - from) % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                    stop(new Outcome(SolverResult.Status.TIME_LIMIT_EXCEEDED, -1, 0));
+                    break;
+                }
+                final int parent = index;
+                expander.expand(depth.states(), index * length, (child, push) -> {
+                    if (!visited.add(VisitedSet.hash(child, 0, length))) {
+                        return false;
+                    }
+                    exploredStates.incrementAndGet();
+                    if (space.isSolved(child, 0)) {
+                        stop(new Outcome(SolverResult.Status.SOLVED, parent, push));
+                        return true;
+                    }
+                    final long grown = children.add(child, parent, push);
+                    final long stored = grown > 0 ? storedBytes.addAndGet(grown) : storedBytes.get();
+                    if (stored + visited.memoryUsage() > memoryLimit
+                        || exploredStates.get() > visited.capacity() / 4 * 3) {
+                        stop(new Outcome(SolverResult.Status.MEMORY_LIMIT_EXCEEDED, -1, 0));
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            return children;
+        }
+    }
+
+    private void stop(Outcome stop) {
+        outcome.compareAndSet(null, stop);
+    }
+
+    /**
+     * The children generated by a task, in growable arrays.
+     */
+    private static final class Children {
+
+        private final int length;
+
+        private int[] states;
+
+        private int[] parents = new int[16];
+
+        private int[] pushes = new int[16];
+
+        private int size;
+
+        Children(int length) {
+            this.length = length;
+            this.states = new int[16 * length];
+        }
+
+        /**
+         * @return the number of bytes allocated to make room for the child.
+         */
+        long add(int[] child, int parent, int push) {
+            long grown = 0;
+            if (size == parents.length) {
+                grown = 4L * (length + 2) * size;
+                states = Arrays.copyOf(states, 2 * size * length);
+                parents = Arrays.copyOf(parents, 2 * size);
+                pushes = Arrays.copyOf(pushes, 2 * size);
+            }
+            System.arraycopy(child, 0, states, size * length, length);
+            parents[size] = parent;
+            pushes[size++] = push;
+            return grown;
+        }
+
+        /**
+         * Append the children of another task, which come after those of this task.
+         */
+        Children append(Children other) {
+            if (other.size > parents.length - size) {
+                final int capacity = size + other.size;
+                states = Arrays.copyOf(states, capacity * length);
+                parents = Arrays.copyOf(parents, capacity);
+                pushes = Arrays.copyOf(pushes, capacity);
+            }
+            System.arraycopy(other.states, 0, states, size * length, other.size * length);
+            System.arraycopy(other.parents, 0, parents, size, other.size);
+            System.arraycopy(other.pushes, 0, pushes, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        Depth toDepth() {
+            return new Depth(states, parents, pushes, size);
+        }
+    }
+
+    private SolverResult result(SolverResult.Status status, Outcome solution) {
+        final var elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+        if (status != SolverResult.Status.SOLVED) {
+            return new SolverResult(status, null, 0, exploredStates.get(), elapsed);
+        }
+        final List<int[]> before = new ArrayList<>();
+        final List<Integer> pushes = new ArrayList<>();
+        if (solution != null) {
+            int level = depths.size() - 1;
+            int index = solution.parent();
+            int push = solution.push();
+            while (true) {
+                final var depth = depths.get(level);
+                before.add(Arrays.copyOfRange(depth.states(), index * length, (index + 1) * length));
+                pushes.add(push);
+                if (level == 0) {
+                    break;
+                }
+                push = depth.pushes()[index];
+                index = depth.parents()[index];
+                level--;
+            }
+        }
+        Collections.reverse(before);
+        Collections.reverse(pushes);
+        final var moves = space.toMoves(before, pushes.stream().mapToInt(Integer::intValue).toArray());
+        return new SolverResult(status, List.copyOf(moves), pushes.size(), exploredStates.get(), elapsed);
+    }
+}
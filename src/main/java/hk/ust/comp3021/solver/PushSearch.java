@@ -0,0 +1,91 @@
+package hk.ust.comp3021.solver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single-threaded breadth-first search over pushes, see {@link Solver}.
+ * Visited states are stored exactly in a {@link StateTable}.
+ */
+final class PushSearch {
+
+    private static final int TIME_CHECK_INTERVAL = 256;
+
+    private final SearchSpace space;
+
+    private final long deadline;
+
+    private final long memoryLimit;
+
+    private final long startTime;
+
+    private final StateTable table;
+
+    PushSearch(SearchSpace space, Duration timeLimit, long memoryLimit) {
+        this.space = space;
+        this.startTime = System.nanoTime();
+        this.deadline = startTime + timeLimit.toNanos();
+        this.memoryLimit = memoryLimit;
+        this.table = new StateTable(space.stateLength());
+        table.add(space.root(), -1, 0);
+    }
+
+    SolverResult run() {
+        final int[] state = new int[space.stateLength()];
+        table.get(0, state);
+        if (space.isSolved(state, 0)) {
+            return result(SolverResult.Status.SOLVED, 0);
+        }
+        final var expander = space.new Expander();
+        // The status and the solution found while expanding, if any.
+        final SolverResult.Status[] status = new SolverResult.Status[1];
+        final int[] solution = {-1};
+        for (int id = 0; id < table.size(); id++) {
+            if (id % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                return result(SolverResult.Status.TIME_LIMIT_EXCEEDED, -1);
+            }
+            table.get(id, state);
+            final int parent = id;
+            final boolean stopped = expander.expand(state, 0, (child, push) -> {
+                if (table.memoryUsageAfterGrowth() > memoryLimit) {
+                    status[0] = SolverResult.Status.MEMORY_LIMIT_EXCEEDED;
+                    return true;
+                }
+                final int added = table.add(child, parent, push);
+                if (added >= 0 && space.isSolved(child, 0)) {
+                    status[0] = SolverResult.Status.SOLVED;
+                    solution[0] = added;
+                    return true;
+                }
+                return false;
+            });
+            if (stopped) {
+                return result(status[0], solution[0]);
+            }
+        }
+        return result(expander.wasBlockedByPlayer()
+            ? SolverResult.Status.INCOMPLETE
+            : SolverResult.Status.UNSOLVABLE, -1);
+    }
+
+    private SolverResult result(SolverResult.Status status, int solution) {
+        final var elapsed = Duration.ofNanos(System.nanoTime() - startTime);
+        if (status != SolverResult.Status.SOLVED) {
+            return new SolverResult(status, null, 0, table.size(), elapsed);
+        }
+        final List<int[]> before = new ArrayList<>();
+        final List<Integer> pushes = new ArrayList<>();
+        for (int id = solution; id > 0; id = table.parent(id)) {
+            final int[] state = new int[space.stateLength()];
+            table.get(table.parent(id), state);
+            before.add(state);
+            pushes.add(table.push(id));
+        }
+        Collections.reverse(before);
+        Collections.reverse(pushes);
+        final var moves = space.toMoves(before, pushes.stream().mapToInt(Integer::intValue).toArray());
+        return new SolverResult(status, List.copyOf(moves), pushes.size(), table.size(), elapsed);
+    }
+}
@@ -0,0 +1,517 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.game.CellKind;
+import hk.ust.comp3021.game.FreezeDetector;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The push-level search space of a game, shared read-only by all searches and threads solving it, see {@link Solver}.
+ * <p>
+ * The map is copied into a grid padded with a border of non-floor cells, so that a step never leaves the grid.
+ * A search state is an {@code int} array holding the cells of all boxes, grouped by owner and sorted within each
+ * group, followed by the normalized cell of each player in id order. A push is encoded as the cell of the pushed
+ * box shifted left by two, or'ed with the direction: 0 for up, 1 for down, 2 for left and 3 for right.
+ * <p>
+ * Expanding states needs scratch space, held by an {@link Expander}, of which each thread needs its own.
+ */
+final class SearchSpace {
+
+    private static final int[] DIRECTION_DX = {0, 0, -1, 1};
+
+    private static final int[] DIRECTION_DY = {-1, 1, 0, 0};
+
+    /**
+     * An independent copy of the state the search starts from.
+     */
+    private final GameState initial;
+
+    private final int mapWidth;
+
+    private final int stride;
+
+    private final int cells;
+
+    /**
+     * Cell offsets of up, down, left and right, i.e. {@code -stride}, {@code stride}, -1 and 1.
+     */
+    private final int[] delta = new int[4];
+
+    private final boolean[] floor;
+
+    private final boolean[] goal;
+
+    /**
+     * Cells a box must not be pushed to, as it could never reach a destination from there,
+     * see {@link GameState#isDeadSquare(int)}.
+     */
+    private final boolean[] dead;
+
+    final int boxCount;
+
+    final int playerCount;
+
+    private final int[] playerIds;
+
+    /**
+     * Owner of each box slot of a state.
+     */
+    private final int[] boxOwner;
+
+    /**
+     * The box slots owned by the same player as slot {@code k} are {@code groupStart[k]} to {@code groupEnd[k] - 1}.
+     */
+    private final int[] groupStart;
+
+    private final int[] groupEnd;
+
+    /**
+     * The normalized initial state.
+     */
+    private final int[] root;
+
+    SearchSpace(GameState start) {
+        this.initial = start.copy(false);
+        this.mapWidth = initial.getMapMaxWidth();
+        final int mapHeight = initial.getMapMaxHeight();
+        this.stride = mapWidth + 2;
+        this.cells = stride * (mapHeight + 2);
+        for (int d = 0; d < 4; d++) {
+            delta[d] = DIRECTION_DY[d] * stride + DIRECTION_DX[d];
+        }
+        floor = new boolean[cells];
+        goal = new boolean[cells];
+        dead = new boolean[cells];
+        final List<int[]> boxes = new ArrayList<>();
+        for (int y = 0; y < mapHeight; y++) {
+            for (int x = 0; x < mapWidth; x++) {
+                final int kind = initial.cellKind(x, y);
+                final int cell = pad(y * mapWidth + x);
+                floor[cell] = CellKind.kindOf(kind) != CellKind.WALL && CellKind.kindOf(kind) != CellKind.VOID;
+                goal[cell] = CellKind.isDestination(kind);
+                dead[cell] = initial.isDeadSquare(y * mapWidth + x);
+                if (CellKind.kindOf(kind) == CellKind.BOX) {
+                    boxes.add(new int[]{CellKind.ownerOf(kind), cell});
+                }
+            }
+        }
+        boxes.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        boxCount = boxes.size();
+        boxOwner = new int[boxCount];
+        groupStart = new int[boxCount];
+        groupEnd = new int[boxCount];
+        for (int k = 0; k < boxCount; k++) {
+            boxOwner[k] = boxes.get(k)[0];
+            groupStart[k] = k > 0 && boxOwner[k - 1] == boxOwner[k] ? groupStart[k - 1] : k;
+        }
+        for (int k = boxCount - 1; k >= 0; k--) {
+            groupEnd[k] = k < boxCount - 1 && boxOwner[k + 1] == boxOwner[k] ? groupEnd[k + 1] : k + 1;
+        }
+        final int[] ids = new int[GameMap.MAX_PLAYERS];
+        int players = 0;
+        for (int id = 0; id < ids.length; id++) {
+            if (initial.playerCellById(id) >= 0) {
+                ids[players++] = id;
+            }
+        }
+        playerCount = players;
+        playerIds = Arrays.copyOf(ids, players);
+
+        root = new int[stateLength()];
+        for (int k = 0; k < boxCount; k++) {
+            root[k] = boxes.get(k)[1];
+        }
+        for (int i = 0; i < playerCount; i++) {
+            root[boxCount + i] = pad(initial.playerCellById(playerIds[i]));
+        }
+        new Expander().normalizeAlone(root);
+    }
+
+    /**
+     * @return the number of ints in a state.
+     */
+    int stateLength() {
+        return boxCount + playerCount;
+    }
+
+    /**
+     * @return a copy of the normalized initial state.
+     */
+    int[] root() {
+        return root.clone();
+    }
+
+    /**
+     * Whether every box of a state is on a destination.
+     *
+     * @param states an array holding the state.
+     * @param offset the index of the state in the array.
+     */
+    boolean isSolved(int[] states, int offset) {
+        for (int k = 0; k < boxCount; k++) {
+            if (!goal[states[offset + k]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int pad(int packed) {
+        return (packed / mapWidth + 1) * stride + packed % mapWidth + 1;
+    }
+
+    private int unpad(int cell) {
+        return (cell / stride - 1) * mapWidth + cell % stride - 1;
+    }
+
+    /**
+     * Receives the children of an expanded state.
+     */
+    @FunctionalInterface
+    interface ChildSink {
+        /**
+         * @param child the child state, only valid during the call.
+         * @param push  the push leading to the child.
+         * @return true to stop the expansion.
+         */
+        boolean accept(int[] child, int push);
+    }
+
+    /**
+     * Scratch space for expanding states, to be used by a single thread.
+     */
+    final class Expander {
+
+        /**
+         * Box slot at each cell for the state being expanded, -1 if none.
+         */
+        private final int[] boxAt = new int[cells];
+
+        /**
+         * Player index at each cell for the state being expanded, -1 if none.
+         */
+        private final int[] playerAt = new int[cells];
+
+        /**
+         * Flood fill marks: a cell is reached if its mark equals the current stamp.
+         * The reach of the pushing player and the normalization of a child use separate marks.
+         */
+        private final int[] reach = new int[cells];
+
+        private final int[] normalizeMarks = new int[cells];
+
+        private int stamp;
+
+        private boolean blockedByPlayer;
+
+        private final int[] queue = new int[cells];
+
+        private final int[] child = new int[stateLength()];
+
+        /**
+         * Checks the boxes as laid out in {@link #boxAt}.
+         */
+        private final FreezeDetector freezeDetector = new FreezeDetector(initial, cell -> {
+            final int k = boxAt[pad(cell)];
+            return k >= 0 ? boxOwner[k] : -1;
+        });
+
+        Expander() {
+            Arrays.fill(boxAt, -1);
+            Arrays.fill(playerAt, -1);
+        }
+
+        /**
+         * Generate every state reachable from a state with a single push that does not push a box onto a dead square or into a deadlock.
+         *
+         * @param states an array holding the state.
+         * @param offset the index of the state in the array.
+         * @param sink   the receiver of the children.
+         * @return true if the sink stopped the expansion.
+         */
+        boolean expand(int[] states, int offset, ChildSink sink) {
+            occupy(states, offset, true);
+            try {
+                for (int i = 0; i < playerCount; i++) {
+                    final int player = playerIds[i];
+                    flood(states[offset + boxCount + i], i, reach);
+                    final int reachStamp = stamp;
+                    for (int k = 0; k < boxCount; k++) {
+                        if (boxOwner[k] != player) {
+                            continue;
+                        }
+                        final int box = states[offset + k];
+                        for (int d = 0; d < 4; d++) {
+                            final int side = box - delta[d];
+                            final int target = box + delta[d];
+                            if (reach[side] != reachStamp || !isFree(target, i) || dead[target]
+                                || isDeadlock(k, box, target)) {
+                                continue;
+                            }
+                            System.arraycopy(states, offset, child, 0, child.length);
+                            movePlayer(child, i, box);
+                            moveBox(child, k, target);
+                            normalize(child);
+                            // Restore the occupancy of the state being expanded.
+                            boxAt[target] = -1;
+                            boxAt[box] = k;
+                            for (int j = 0; j < playerCount; j++) {
+                                playerAt[child[boxCount + j]] = -1;
+                            }
+                            for (int j = 0; j < playerCount; j++) {
+                                playerAt[states[offset + boxCount + j]] = j;
+                            }
+                            sortGroup(child, k);
+                            if (sink.accept(child, box << 2 | d)) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                occupy(states, offset, false);
+            }
+        }
+
+        /**
+         * Whether pushing the box in slot {@code k} from a cell to another freezes it in a deadlock.
+         */
+        private boolean isDeadlock(int k, int box, int target) {
+            boxAt[box] = -1;
+            boxAt[target] = k;
+            final boolean deadlock = freezeDetector.isDeadlock(unpad(target));
+            boxAt[target] = -1;
+            boxAt[box] = k;
+            return deadlock;
+        }
+
+        /**
+         * Normalize a state while the occupancy is empty.
+         */
+        void normalizeAlone(int[] state) {
+            occupy(state, 0, true);
+            normalize(state);
+            occupy(state, 0, false);
+        }
+
+        /**
+         * Set or clear the boxes and players of a state in {@link #boxAt} and {@link #playerAt}.
+         */
+        private void occupy(int[] states, int offset, boolean set) {
+            for (int k = 0; k < boxCount; k++) {
+                boxAt[states[offset + k]] = set ? k : -1;
+            }
+            for (int i = 0; i < playerCount; i++) {
+                playerAt[states[offset + boxCount + i]] = set ? i : -1;
+            }
+        }
+
+        /**
+         * Move player {@code i} of a state to a cell, keeping {@link #playerAt} in sync.
+         */
+        private void movePlayer(int[] state, int i, int cell) {
+            playerAt[state[boxCount + i]] = -1;
+            playerAt[cell] = i;
+            state[boxCount + i] = cell;
+        }
+
+        /**
+         * Move the box in slot {@code k} of a state to a cell, keeping {@link #boxAt} in sync, but not the slot order.
+         */
+        private void moveBox(int[] state, int k, int cell) {
+            boxAt[state[k]] = -1;
+            boxAt[cell] = k;
+            state[k] = cell;
+        }
+
+        /**
+         * Whether player {@code i} may stand on a cell: a floor cell with neither a box nor another player.
+         * Records in {@link #blockedByPlayer} when only another player is in the way.
+         */
+        private boolean isFree(int cell, int i) {
+            if (!floor[cell] || boxAt[cell] >= 0) {
+                return false;
+            }
+            if (playerAt[cell] >= 0 && playerAt[cell] != i) {
+                blockedByPlayer = true;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return Whether a player was ever in the way of another one while expanding states, in which case
+         * the search may have missed solutions where the players make way for each other.
+         */
+        boolean wasBlockedByPlayer() {
+            return blockedByPlayer;
+        }
+
+        /**
+         * Mark the cells player {@code i} can walk to from a cell with a new stamp.
+         *
+         * @return the smallest reachable cell.
+         */
+        private int flood(int from, int i, int[] marks) {
+            final int mark = ++stamp;
+            int head = 0;
+            int tail = 0;
+            int min = from;
+            marks[from] = mark;
+            queue[tail++] = from;
+            while (head < tail) {
+                final int cell = queue[head++];
+                min = Math.min(min, cell);
+                for (int d = 0; d < 4; d++) {
+                    final int next = cell + delta[d];
+                    if (marks[next] != mark && isFree(next, i)) {
+                        marks[next] = mark;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return min;
+        }
+
+        /**
+         * Move each player of a state, in id order, to the smallest cell it can walk to.
+         * The occupancy must describe the state, and is kept in sync.
+         */
+        private void normalize(int[] state) {
+            for (int i = 0; i < playerCount; i++) {
+                movePlayer(state, i, flood(state[boxCount + i], i, normalizeMarks));
+            }
+        }
+    }
+
+    /**
+     * Restore the sorted order of the group of box slot {@code k} after the box in that slot moved.
+     */
+    private void sortGroup(int[] state, int k) {
+        while (k > groupStart[k] && state[k - 1] > state[k]) {
+            final int swap = state[k - 1];
+            state[k - 1] = state[k];
+            state[k--] = swap;
+        }
+        while (k < groupEnd[k] - 1 && state[k + 1] < state[k]) {
+            final int swap = state[k + 1];
+            state[k + 1] = state[k];
+            state[k++] = swap;
+        }
+    }
+
+    /**
+     * Turn a sequence of pushes into moves, by playing them on a copy of the initial state.
+     * <p>
+     * The search assumed that, before each push, every player stood on the normalized cell of the state the push
+     * was made from. Walking all players there before each push always works, but wastes steps when there are
+     * several players. So the pusher first tries to walk straight to the box, and the players are only normalized
+     * when the others are in the way. If that leaves a player unable to reach its normalized cell later on,
+     * the pushes are played again normalizing before every push.
+     *
+     * @param before the state before each push.
+     * @param pushes the pushes.
+     * @return the moves.
+     */
+    List<Move> toMoves(List<int[]> before, int[] pushes) {
+        final var moves = playPushes(before, pushes, true);
+        return moves != null ? moves : playPushes(before, pushes, false);
+    }
+
+    /**
+     * @return the moves, or null if a shortcut left a player unable to reach its normalized cell.
+     */
+    private List<Move> playPushes(List<int[]> before, int[] pushes, boolean shortcut) {
+        final List<Move> moves = new ArrayList<>();
+        final var replay = initial.copy(false);
+        final int[] queue = new int[cells];
+        for (int step = 0; step < pushes.length; step++) {
+            final int box = pushes[step] >>> 2;
+            final int d = pushes[step] & 3;
+            final int pusher = CellKind.ownerOf(replay.cellKindAt(unpad(box)));
+            final int side = unpad(box - delta[d]);
+            final int target = unpad(box + delta[d]);
+            final boolean direct = playerCount == 1 || shortcut
+                && CellKind.kindOf(replay.cellKindAt(target)) == CellKind.EMPTY
+                && walk(replay, pusher, side, moves, queue);
+            if (!direct) {
+                final int[] state = before.get(step);
+                for (int i = 0; i < playerCount; i++) {
+                    if (!walk(replay, playerIds[i], unpad(state[boxCount + i]), moves, queue)) {
+                        if (shortcut) {
+                            return null;
+                        }
+                        throw new IllegalStateException("no path for player " + playerIds[i]);
+                    }
+                }
+            }
+            if (!walk(replay, pusher, side, moves, queue)) {
+                throw new IllegalStateException("no path for player " + pusher);
+            }
+            replay.move(unpad(box), target);
+            replay.move(side, unpad(box));
+            moves.add(move(pusher, d));
+        }
+        if (!replay.isWin()) {
+            throw new IllegalStateException("solution does not solve the game");
+        }
+        return moves;
+    }
+
+    /**
+     * Walk a player along a shortest path to a cell of the game state, appending the steps to a list.
+     *
+     * @return false if the player cannot reach the cell, in which case nothing changes.
+     */
+    private boolean walk(GameState replay, int player, int to, List<Move> moves, int[] queue) {
+        final int from = replay.playerCellById(player);
+        if (from == to) {
+            return true;
+        }
+        final int[] previous = new int[replay.getMapMaxWidth() * replay.getMapMaxHeight()];
+        Arrays.fill(previous, -1);
+        previous[from] = from;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        while (head < tail && previous[to] < 0) {
+            final int cell = queue[head++];
+            final int x = cell % mapWidth;
+            final int y = cell / mapWidth;
+            for (int d = 0; d < 4; d++) {
+                final int next = replay.pack(x + DIRECTION_DX[d], y + DIRECTION_DY[d]);
+                if (next >= 0 && previous[next] < 0 && CellKind.kindOf(replay.cellKindAt(next)) == CellKind.EMPTY) {
+                    previous[next] = cell;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        if (previous[to] < 0) {
+            return false;
+        }
+        final int start = moves.size();
+        for (int cell = to; cell != from; cell = previous[cell]) {
+            final int step = cell - previous[cell];
+            moves.add(move(player, step == -mapWidth ? 0 : step == mapWidth ? 1 : step == -1 ? 2 : 3));
+        }
+        Collections.reverse(moves.subList(start, moves.size()));
+        replay.move(from, to);
+        return true;
+    }
+
+    private static Move move(int player, int direction) {
+        return switch (direction) {
+            case 0 -> new Move.Up(player);
+            case 1 -> new Move.Down(player);
+            case 2 -> new Move.Left(player);
+            default -> new Move.Right(player);
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A Sokoban solver finding the solution with the fewest pushes.
+ * <p>
+ * The search is a breadth-first search over pushes rather than single steps: between two pushes, each player
+ * may walk anywhere it can reach, so states differing only in where a player stands within the same reachable
+ * region are merged by moving the player to the smallest cell of its region. Visited states are stored as
+ * packed cells in a {@link StateTable}. With a parallelism above 1, each depth of the search is expanded on a
+ * {@link ForkJoinPool} instead, and visited states are only remembered by a 64-bit hash, see {@link VisitedSet}.
+ * Box ownership is respected: a player only pushes its own boxes,
+ * and the boxes of other players are obstacles to it.
+ * <p>
+ * With several players, the other players stay where they are while one player walks to a box.
+ * Solutions needing players to make way for each other without pushing are therefore not found. When no solution
+ * is found and a player was ever in the way of another one, the level is reported
+ * {@link SolverResult.Status#INCOMPLETE} rather than {@link SolverResult.Status#UNSOLVABLE}.
+ * <p>
+ * A solver holds no state between searches and can be shared between threads.
+ */
+public class Solver {
+
+    /**
+     * Time budget used by {@link #Solver()}.
+     */
+    public static final Duration DEFAULT_TIME_LIMIT = Duration.ofSeconds(10);
+
+    /**
+     * Memory budget in bytes used by {@link #Solver()}.
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = 256L << 20;
+
+    private final Duration timeLimit;
+
+    private final long memoryLimit;
+
+    private final int parallelism;
+
+    /**
+     * Create a solver with the default budgets.
+     */
+    public Solver() {
+        this(DEFAULT_TIME_LIMIT, DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * @param timeLimit   The longest time a search may take.
+     * @param memoryLimit The largest number of bytes the visited states of a search may take.
+     * @throws IllegalArgumentException if a budget is not positive.
+     */
+    public Solver(@NotNull Duration timeLimit, long memoryLimit) {
+        this(timeLimit, memoryLimit, 1);
+    }
+
+    /**
+     * @param timeLimit   The longest time a search may take.
+     * @param memoryLimit The largest number of bytes the visited states of a search may take.
+     * @param parallelism The number of threads a search may use, 1 for a single-threaded search.
+     * @throws IllegalArgumentException if a budget or the parallelism is not positive.
+     */
+    public Solver(@NotNull Duration timeLimit, long memoryLimit, int parallelism) {
+        if (timeLimit.isNegative() || timeLimit.isZero() || memoryLimit <= 0) {
+            throw new IllegalArgumentException("solver budgets must be positive");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("solver parallelism must be positive");
+        }
+        this.timeLimit = timeLimit;
+        this.memoryLimit = memoryLimit;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Solve a game from its initial state.
+     *
+     * @param map The game map.
+     * @return The result of the search.
+     */
+    public @NotNull SolverResult solve(@NotNull GameMap map) {
+        return solve(new GameState(map));
+    }
+
+    /**
+     * Solve a game from its current state, e.g. to give a hint. The game state is not modified.
+     *
+     * @param state The game state to start from.
+     * @return The result of the search.
+     */
+    public @NotNull SolverResult solve(@NotNull GameState state) {
+        if (parallelism == 1) {
+            return new PushSearch(new SearchSpace(state), timeLimit, memoryLimit).run();
+        }
+        return solveInParallel(state);
+    }
+
+    /**
+     * Solve a game with the parallel search even when the parallelism is 1, so that its scaling can be measured
+     * against itself rather than against the sequential search.
+     *
+     * @param state The game state to start from.
+     * @return The result of the search.
+     */
+    @NotNull SolverResult solveInParallel(@NotNull GameState state) {
+        final var space = new SearchSpace(state);
+        final var pool = new ForkJoinPool(parallelism);
+        try {
+            return new ParallelPushSearch(space, pool, timeLimit, memoryLimit).run();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.SokobanGameFactory;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Measures how the solver scales with the number of threads.
+ */
+public class SolverBenchmark {
+
+    /**
+     * Number of times each thread count is measured; the fastest run is kept.
+     */
+    private static final int RUNS = 3;
+
+    /**
+     * Solve a map with the sequential search, then with the parallel search on 1 to {@code maxThreads} threads, and
+     * print the time and the speedup over the parallel search on a single thread. The sequential search is a
+     * different algorithm, so it is printed for reference only.
+     *
+     * @param map        The map to solve.
+     * @param maxThreads The largest number of threads to measure.
+     * @param solver     Creates the solver to measure for a number of threads.
+     * @param out        Where to print the report.
+     */
+    public static void report(@NotNull GameMap map, int maxThreads, @NotNull IntFunction<Solver> solver,
+                              @NotNull PrintStream out) {
+        out.printf("%10s %10s %12s %8s%n", "threads", "time (ms)", "states", "speedup");
+        final var sequential = best(() -> solver.apply(1).solve(map));
+        final var singleThread = best(() -> solver.apply(1).solveInParallel(new GameState(map)));
+        final double baseline = millis(singleThread);
+        print(out, "sequential", sequential, baseline);
+        print(out, "1", singleThread, baseline);
+        for (int threads = 2; threads <= maxThreads; threads++) {
+            final var parallel = solver.apply(threads);
+            print(out, String.valueOf(threads), best(() -> parallel.solveInParallel(new GameState(map))), baseline);
+        }
+    }
+
+    /**
+     * @return The fastest of {@link #RUNS} searches.
+     */
+    private static SolverResult best(Supplier<SolverResult> search) {
+        SolverResult best = null;
+        for (int run = 0; run < RUNS; run++) {
+            final var result = search.get();
+            if (best == null || result.elapsed().compareTo(best.elapsed()) < 0) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    private static double millis(SolverResult result) {
+        return result.elapsed().toNanos() / 1e6;
+    }
+
+    private static void print(PrintStream out, String threads, SolverResult result, double baseline) {
+        out.printf("%10s %10.1f %12d %7.2fx  %s%n", threads, millis(result), result.exploredStates(),
+            baseline / millis(result), result.status());
+    }
+
+    /**
+     * @param args The map file, and optionally the largest number of threads, all available processors by default.
+     */
+    public static void main(@NotNull String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Map is not provided.");
+            System.exit(1);
+        }
+        final var map = SokobanGameFactory.loadGameMap(Path.of(args[0]));
+        final int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        report(map, maxThreads,
+            threads -> new Solver(Duration.ofMinutes(5), Runtime.getRuntime().maxMemory() / 2, threads), System.out);
+    }
+}
@@ -0,0 +1,60 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.actions.Move;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The result of solving a game.
+ *
+ * @param status         How the search ended.
+ * @param moves          The moves solving the game if {@link Status#SOLVED}, otherwise null.
+ * @param pushes         The number of pushes in the solution, which is the least possible, or 0 if not solved.
+ * @param exploredStates The number of distinct states visited by the search.
+ * @param elapsed        The time spent searching.
+ */
+public record SolverResult(
+    @NotNull Status status,
+    @Nullable List<Move> moves,
+    int pushes,
+    long exploredStates,
+    @NotNull Duration elapsed
+) {
+
+    /**
+     * How a search ended.
+     */
+    public enum Status {
+        /**
+         * A solution was found.
+         */
+        SOLVED,
+        /**
+         * Every reachable state was visited without finding a solution.
+         */
+        UNSOLVABLE,
+        /**
+         * Every state the search considers was visited without finding a solution, but a player was in the way of
+         * another at some point, so a solution where players make way for each other without pushing may exist.
+         */
+        INCOMPLETE,
+        /**
+         * The time budget ran out before the search ended.
+         */
+        TIME_LIMIT_EXCEEDED,
+        /**
+         * The memory budget ran out before the search ended.
+         */
+        MEMORY_LIMIT_EXCEEDED,
+    }
+
+    /**
+     * @return Whether a solution was found.
+     */
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+}
@@ -0,0 +1,144 @@
+package hk.ust.comp3021.solver;
+
+import java.util.Arrays;
+
+/**
+ * The set of visited search states, stored as fixed-length rows of packed cells in a single {@code int} arena.
+ * <p>
+ * States are numbered in insertion order, which is also the order a breadth-first search expands them in,
+ * and each state remembers the state it was reached from and the push that led to it.
+ * Lookups use an open-addressing table of state numbers, so no object is allocated per state.
+ */
+final class StateTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final int length;
+
+    /**
+     * State {@code i} occupies {@code arena[i * length]} to {@code arena[(i + 1) * length - 1]}.
+     */
+    private int[] arena;
+
+    private int[] parents;
+
+    private int[] pushes;
+
+    /**
+     * Open-addressing table holding state numbers plus one, 0 for an empty slot.
+     */
+    private int[] slots;
+
+    private int size;
+
+    /**
+     * @param length the number of ints in a state.
+     */
+    StateTable(int length) {
+        this.length = length;
+        this.arena = new int[INITIAL_CAPACITY * length];
+        this.parents = new int[INITIAL_CAPACITY];
+        this.pushes = new int[INITIAL_CAPACITY];
+        this.slots = new int[2 * INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a state unless it is already present.
+     *
+     * @param state  the state, of the length given to the constructor.
+     * @param parent the number of the state it was reached from, -1 for the initial state.
+     * @param push   the push leading to it.
+     * @return the number of the added state, or -1 if it was already present.
+     */
+    int add(int[] state, int parent, int push) {
+        final int mask = slots.length - 1;
+        for (int slot = hash(state) & mask; ; slot = (slot + 1) & mask) {
+            final int entry = slots[slot];
+            if (entry == 0) {
+                break;
+            }
+            if (Arrays.equals(arena, (entry - 1) * length, entry * length, state, 0, length)) {
+                return -1;
+            }
+        }
+        if (size == parents.length) {
+            grow();
+        }
+        final int id = size++;
+        System.arraycopy(state, 0, arena, id * length, length);
+        parents[id] = parent;
+        pushes[id] = push;
+        insert(id);
+        return id;
+    }
+
+    /**
+     * Copy a state into an array.
+     */
+    void get(int id, int[] into) {
+        System.arraycopy(arena, id * length, into, 0, length);
+    }
+
+    int get(int id, int index) {
+        return arena[id * length + index];
+    }
+
+    int parent(int id) {
+        return parents[id];
+    }
+
+    int push(int id) {
+        return pushes[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes held by the table.
+     */
+    long memoryUsage() {
+        return 4L * ((long) arena.length + parents.length + pushes.length + slots.length);
+    }
+
+    /**
+     * @return the number of bytes the table would hold after its next growth.
+     */
+    long memoryUsageAfterGrowth() {
+        return size < parents.length ? memoryUsage() : 2 * memoryUsage();
+    }
+
+    private void grow() {
+        final int capacity = 2 * parents.length;
+        arena = Arrays.copyOf(arena, capacity * length);
+        parents = Arrays.copyOf(parents, capacity);
+        pushes = Arrays.copyOf(pushes, capacity);
+        slots = new int[2 * capacity];
+        for (int id = 0; id < size; id++) {
+            insert(id);
+        }
+    }
+
+    private void insert(int id) {
+        final int mask = slots.length - 1;
+        int slot = hash(arena, id * length) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    private int hash(int[] state) {
+        return hash(state, 0);
+    }
+
+    private int hash(int[] values, int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + values[i];
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
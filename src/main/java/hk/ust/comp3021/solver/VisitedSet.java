@@ -0,0 +1,118 @@
+package hk.ust.comp3021.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free set of visited search states, keyed by a 64-bit hash of each state, see {@link ParallelPushSearch}.
+ * <p>
+ * The set is a fixed open-addressing table of hashes filled by compare-and-set, so any number of threads may add
+ * to it concurrently. Only hashes are stored, so two different states with the same hash are taken as one, and the
+ * second one is pruned. With a 64-bit hash the chance of that is about {@code n * n / 2^65} for {@code n} states,
+ * i.e. below one in a million for a billion states.
+ * <p>
+ * The table does not grow while threads add to it; instead, {@link #resize(int)} copies it into a larger one
+ * while no thread is adding.
+ */
+final class VisitedSet {
+
+    /**
+     * The stored value of an empty slot; the hash 0 is stored as 1 instead.
+     */
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray slots;
+
+    private final int mask;
+
+    /**
+     * @param capacity the number of slots, a power of two.
+     */
+    VisitedSet(int capacity) {
+        this.slots = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the largest power of two number of slots taking at most a number of bytes, but at least 2.
+     */
+    static int capacityFor(long bytes) {
+        final long slots = Math.max(2, Math.min(1L << 30, bytes / Long.BYTES));
+        return Integer.highestOneBit((int) slots);
+    }
+
+    /**
+     * Copy the set into a table with more slots. Must not run concurrently with {@link #add(long)}.
+     *
+     * @param capacity the number of slots of the new table, a power of two larger than the current one.
+     * @return the new set.
+     */
+    VisitedSet resize(int capacity) {
+        final var resized = new VisitedSet(capacity);
+        for (int slot = 0; slot <= mask; slot++) {
+            final long key = slots.get(slot);
+            if (key != EMPTY) {
+                resized.add(key);
+            }
+        }
+        return resized;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long memoryUsage() {
+        return (long) Long.BYTES * capacity();
+    }
+
+    /**
+     * Add the hash of a state unless it is already present.
+     *
+     * @return true if the hash was added, false if it was present.
+     * @throws IllegalStateException if the set is full.
+     */
+    boolean add(long hash) {
+        final long key = hash == EMPTY ? 1 : hash;
+        int slot = (int) (key ^ key >>> 32) & mask;
+        for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+            final long current = slots.get(slot);
+            if (current == key) {
+                return false;
+            }
+            if (current == EMPTY) {
+                final long witness = slots.compareAndExchange(slot, EMPTY, key);
+                if (witness == EMPTY) {
+                    return true;
+                }
+                if (witness == key) {
+                    return false;
+                }
+            }
+        }
+        throw new IllegalStateException("visited set is full");
+    }
+
+    /**
+     * A 64-bit hash of a state.
+     *
+     * @param states an array holding the state.
+     * @param offset the index of the state in the array.
+     * @param length the number of ints in the state.
+     */
+    static long hash(int[] states, int offset, int length) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = offset; i < offset + length; i++) {
+            h = mix(h + states[i]);
+        }
+        return h;
+    }
+
+    /**
+     * The finalizer of SplitMix64.
+     */
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+}
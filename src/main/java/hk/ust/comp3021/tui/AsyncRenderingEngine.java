@@ -0,0 +1,204 @@
+package hk.ust.comp3021.tui;
+
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.game.Viewport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A rendering engine that draws on a dedicated thread, so that a slow terminal or pipe does not slow down the game.
+ * <p>
+ * {@link #render(GameState)} only publishes a {@link GameState#snapshot(GameState)} and returns. Snapshots are
+ * recycled: the one of a replaced frame, or the last one drawn, is refreshed with the moves made since it was
+ * taken, so publishing a frame costs about the moves since the previous frames rather than the size of the map.
+ * The render thread draws the latest snapshot with the wrapped engine at most {@code maxFramesPerSecond} times
+ * per second. A frame published before the previous one is drawn replaces it, so at most one frame is pending.
+ * Messages and viewport changes are never dropped, and everything drawn keeps the order it was published in.
+ * <p>
+ * {@link #close()} draws everything still pending and stops the render thread.
+ */
+public class AsyncRenderingEngine implements RenderingEngine, AutoCloseable {
+
+    private final RenderingEngine delegate;
+
+    private final long frameInterval;
+
+    private final Thread renderThread;
+
+    /**
+     * Events waiting to be drawn, in the order they were published. Guarded by itself.
+     */
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+
+    /**
+     * Number of {@link Frame}s in {@link #pending}. Guarded by {@link #pending}.
+     */
+    private int pendingFrames;
+
+    /**
+     * The snapshot of the last frame drawn, handed back by the render thread for reuse, or null.
+     * Guarded by {@link #pending}.
+     */
+    private GameState spare;
+
+    /**
+     * Guarded by {@link #pending}.
+     */
+    private boolean closed;
+
+    /**
+     * The first exception thrown by the wrapped engine, rethrown to the game thread.
+     */
+    private volatile RuntimeException failure;
+
+    /**
+     * A frame to draw.
+     */
+    private record Frame(RenderingEngine engine, GameState snapshot) implements Runnable {
+        @Override
+        public void run() {
+            engine.render(snapshot);
+        }
+    }
+
+    /**
+     * @param delegate           The engine doing the actual drawing.
+     *                           It is only called from the render thread once this engine is created, and must
+     *                           not keep the game state it renders, as the snapshot is reused afterwards.
+     * @param maxFramesPerSecond The maximum number of frames to draw per second.
+     * @throws IllegalArgumentException if maxFramesPerSecond is not positive.
+     */
+    public AsyncRenderingEngine(@NotNull RenderingEngine delegate, int maxFramesPerSecond) {
+        if (maxFramesPerSecond <= 0) {
+            throw new IllegalArgumentException("invalid frame rate");
+        }
+        this.delegate = delegate;
+        this.frameInterval = TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond;
+        this.renderThread = new Thread(this::drawLoop, "sokoban-render");
+        this.renderThread.setDaemon(true);
+        this.renderThread.start();
+    }
+
+    @Override
+    public void render(@NotNull GameState state) {
+        synchronized (pending) {
+            checkOpen();
+            GameState recycled = spare;
+            if (pendingFrames > 0) {
+                // Drop only the stale frame, keeping the events around it, and reuse its snapshot.
+                for (final var iterator = pending.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next() instanceof Frame stale) {
+                        iterator.remove();
+                        recycled = stale.snapshot();
+                        break;
+                    }
+                }
+                pendingFrames--;
+            } else {
+                spare = null;
+            }
+            pending.addLast(new Frame(delegate, state.snapshot(recycled)));
+            pendingFrames++;
+            pending.notifyAll();
+        }
+    }
+
+    @Override
+    public void message(@NotNull String content) {
+        publish(() -> delegate.message(content));
+    }
+
+    @Override
+    public void setViewport(@Nullable Viewport viewport) {
+        publish(() -> delegate.setViewport(viewport));
+    }
+
+    private void publish(Runnable event) {
+        synchronized (pending) {
+            checkOpen();
+            pending.addLast(event);
+            pending.notifyAll();
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IllegalStateException("the rendering engine is closed");
+        }
+    }
+
+    /**
+     * Draw everything still pending, then stop the render thread.
+     * Calling this method more than once has no further effect.
+     *
+     * @throws RuntimeException if the wrapped engine failed to draw.
+     */
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+            pending.notifyAll();
+        }
+        boolean interrupted = false;
+        while (renderThread.isAlive()) {
+            try {
+                renderThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drawLoop() {
+        final var batch = new ArrayDeque<Runnable>();
+        long nextFrame = System.nanoTime();
+        try {
+            while (true) {
+                synchronized (pending) {
+                    while (pending.isEmpty() && !closed) {
+                        pending.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    if (pendingFrames > 0 && !closed) {
+                        // Wait for the next frame slot, letting newer frames replace the pending one meanwhile.
+                        for (long delay = nextFrame - System.nanoTime(); delay > 0 && !closed;
+                             delay = nextFrame - System.nanoTime()) {
+                            TimeUnit.NANOSECONDS.timedWait(pending, delay);
+                        }
+                    }
+                    batch.addAll(pending);
+                    pending.clear();
+                    pendingFrames = 0;
+                }
+                for (Runnable event; (event = batch.pollFirst()) != null; ) {
+                    event.run();
+                    if (event instanceof Frame frame) {
+                        nextFrame = System.nanoTime() + frameInterval;
+                        synchronized (pending) {
+                            spare = frame.snapshot();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+}
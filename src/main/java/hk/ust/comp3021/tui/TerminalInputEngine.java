@@ -2,81 +2,233 @@ package hk.ust.comp3021.tui;
 
 import hk.ust.comp3021.actions.*;
 import hk.ust.comp3021.game.InputEngine;
-import hk.ust.comp3021.utils.NotImplementedException;
+import hk.ust.comp3021.utils.StringResources;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Scanner;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
 /**
  * An input engine that fetches actions from terminal input.
+ * <p>
+ * A line may hold several moves, e.g. {@code wwaassdd}, each optionally prefixed by a repeat count,
+ * e.g. {@code 3w2d}. The line is decoded at once into a batch, and the following calls to {@link #fetchAction()}
+ * return the batch one action at a time while {@link #hasPendingActions()} is true.
+ * A line containing anything else than moves, undos, counts and blanks is a single {@link InvalidInput},
+ * and the line {@code exit} is an {@link Exit}. The end of the input is also an {@link Exit}.
  */
 public class TerminalInputEngine implements InputEngine {
 
     /**
-     * The {@link Scanner} for reading input from the terminal.
+     * The largest repeat count accepted before a key.
      */
-    private final Scanner terminalScanner;
+    public static final int MAX_REPEAT = 1000;
+
+    /**
+     * Action of each key, indexed by its ASCII code, null for keys that are not actions.
+     * Actions are immutable, so the same instance is returned every time the key is pressed.
+     */
+    private static final Action[] KEY_ACTIONS = new Action[128];
+
+    private static final byte[] EXIT_COMMAND = StringResources.EXIT_COMMAND_TEXT.getBytes();
+
+    static {
+        putKey('w', new Move.Up(0));
+        putKey('a', new Move.Left(0));
+        putKey('s', new Move.Down(0));
+        putKey('d', new Move.Right(0));
+        putKey('h', new Move.Up(1));
+        putKey('j', new Move.Left(1));
+        putKey('k', new Move.Down(1));
+        putKey('l', new Move.Right(1));
+        putKey('u', new Undo(0));
+    }
+
+    private static void putKey(char key, Action action) {
+        KEY_ACTIONS[key] = action;
+        KEY_ACTIONS[Character.toUpperCase(key)] = action;
+    }
+
+    /**
+     * The stream for reading input from the terminal.
+     */
+    private final InputStream terminalStream;
+
+    /**
+     * Bytes read from {@link #terminalStream} and not decoded yet, from {@link #readPosition} to {@link #readLimit}.
+     */
+    private final byte[] readBuffer = new byte[8192];
+
+    private int readPosition;
+
+    private int readLimit;
+
+    /**
+     * The line being decoded, grown on demand.
+     */
+    private byte[] line = new byte[64];
+
+    /**
+     * The decoded batch as runs of the same action: {@code runCounts[i]} times {@code runActions[i]},
+     * pending from {@link #runStart} to {@link #runEnd}.
+     */
+    private Action[] runActions = new Action[16];
+
+    private int[] runCounts = new int[16];
+
+    private int runStart;
+
+    private int runEnd;
 
     /**
      * @param terminalStream The stream to read terminal inputs.
      */
     public TerminalInputEngine(InputStream terminalStream) {
-        this.terminalScanner = new Scanner(terminalStream);
+        this.terminalStream = terminalStream;
     }
 
     /**
      * Fetch an action from user in terminal to process.
+     * A new line is read only when the batch decoded from the previous line is used up.
      *
      * @return the user action.
      */
     @Override
     public @NotNull Action fetchAction() {
-        // This is an example showing how to read a line from the Scanner class.
-        // Feel free to change it if you do not like it.
-        final var inputLine = terminalScanner.nextLine();
-
-        //
-        // TODO
-        switch (inputLine.toLowerCase()) {
-            case "w": {
-                return new Move.Up(0);
-            }
-            case "a": {
-                return new Move.Left(0);
-            }
-            case "s": {
-                return new Move.Down(0);
+        if (runStart == runEnd) {
+            final int length = readLine();
+            if (length < 0) {
+                return new Exit(0);
             }
-            case "d": {
-                return new Move.Right(0);
+            final var single = decode(length);
+            if (single != null) {
+                return single;
             }
+        }
+        final var action = runActions[runStart];
+        if (--runCounts[runStart] == 0) {
+            runStart++;
+        }
+        return action;
+    }
 
-            case "h": {
-                return new Move.Up(1);
-            }
-            case "j": {
-                return new Move.Left(1);
-            }
-            case "k": {
-                return new Move.Down(1);
-            }
-            case "l": {
-                return new Move.Right(1);
+    /**
+     * @return whether actions decoded from the last line are still pending.
+     */
+    @Override
+    public boolean hasPendingActions() {
+        return runStart < runEnd;
+    }
+
+    /**
+     * Decode a line in {@link #line} into runs of actions.
+     *
+     * @return the action of the whole line if it is not a batch of moves, i.e. an {@link Exit} or an {@link InvalidInput}.
+     */
+    private Action decode(int length) {
+        int start = 0;
+        int end = length;
+        while (start < end && isBlank(line[start])) {
+            start++;
+        }
+        while (end > start && isBlank(line[end - 1])) {
+            end--;
+        }
+        if (end - start == EXIT_COMMAND.length && matchesIgnoreCase(start, EXIT_COMMAND)) {
+            return new Exit(0);
+        }
+        runStart = 0;
+        runEnd = 0;
+        // The pending repeat count, -1 if none.
+        int count = -1;
+        int i = start;
+        for (; i < end; i++) {
+            final byte key = line[i];
+            if (key >= '0' && key <= '9') {
+                count = (count < 0 ? 0 : 10 * count) + (key - '0');
+                if (count > MAX_REPEAT) {
+                    break;
+                }
+            } else if (key >= 0 && KEY_ACTIONS[key] != null && count != 0) {
+                addRun(KEY_ACTIONS[key], count < 0 ? 1 : count);
+                count = -1;
+            } else if (!isBlank(key) || count >= 0) {
+                break;
             }
+        }
+        if (i == end && count < 0 && runEnd > 0) {
+            return null;
+        }
+        runEnd = 0;
+        return new InvalidInput(0, StringResources.INVALID_INPUT_MESSAGE);
+    }
 
-            case "u": {
-                return new Undo(0);
+    private void addRun(Action action, int count) {
+        if (runEnd > 0 && runActions[runEnd - 1] == action) {
+            runCounts[runEnd - 1] += count;
+            return;
+        }
+        if (runEnd == runActions.length) {
+            runActions = Arrays.copyOf(runActions, 2 * runEnd);
+            runCounts = Arrays.copyOf(runCounts, 2 * runEnd);
+        }
+        runActions[runEnd] = action;
+        runCounts[runEnd++] = count;
+    }
+
+    private boolean matchesIgnoreCase(int start, byte[] word) {
+        for (int i = 0; i < word.length; i++) {
+            if ((line[start + i] | 0x20) != word[i]) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            case "exit": {
-                return new Exit(0);
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Read the next line into {@link #line}, without its line feed.
+     *
+     * @return the length of the line, or -1 at the end of the input.
+     */
+    private int readLine() {
+        int length = 0;
+        while (true) {
+            if (readPosition == readLimit) {
+                try {
+                    readLimit = terminalStream.read(readBuffer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                readPosition = 0;
+                if (readLimit <= 0) {
+                    readLimit = 0;
+                    return length > 0 ? length : -1;
+                }
             }
-            case default: {
-                return new InvalidInput(0, "Invalid Input");
+            for (int i = readPosition; i < readLimit; i++) {
+                if (readBuffer[i] == '\n') {
+                    length = append(length, readPosition, i);
+                    readPosition = i + 1;
+                    return length;
+                }
             }
+            length = append(length, readPosition, readLimit);
+            readPosition = readLimit;
         }
+    }
 
+    private int append(int length, int from, int to) {
+        final int count = to - from;
+        if (line.length - length < count) {
+            line = Arrays.copyOf(line, Math.max(2 * line.length, length + count));
+        }
+        System.arraycopy(readBuffer, from, line, length, count);
+        return length + count;
     }
 }
-
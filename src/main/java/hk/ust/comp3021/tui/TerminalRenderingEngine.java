@@ -1,56 +1,351 @@
 package hk.ust.comp3021.tui;
-import hk.ust.comp3021.entities.Box;
-import hk.ust.comp3021.entities.Empty;
-import hk.ust.comp3021.entities.Player;
-import hk.ust.comp3021.entities.Wall;
+
+import hk.ust.comp3021.game.CellKind;
 import hk.ust.comp3021.game.GameState;
-import hk.ust.comp3021.game.Position;
 import hk.ust.comp3021.game.RenderingEngine;
-import hk.ust.comp3021.utils.NotImplementedException;
+import hk.ust.comp3021.game.Viewport;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import java.io.PrintStream;
+import java.util.Arrays;
+
 /**
  * A rendering engine that prints to the terminal.
+ * <p>
+ * In incremental mode, the engine draws the whole map only for the first frame, when the map size changes, when the
+ * terminal is resized, see {@link #setTerminalSize(int, int)}, or when messages may have scrolled the screen.
+ * Later frames are compared with the previously drawn one, and only the changed cells are redrawn using
+ * ANSI cursor addressing. Messages are printed below the map and cleared by the next frame.
+ * <p>
+ * Frames are filled as ASCII bytes straight from {@link GameState#cellKind(int, int)} into reused buffers
+ * and written with a single flush, so drawing a frame allocates nothing once the buffers are sized.
+ * <p>
+ * With a {@link Viewport}, only the window around the followed player is drawn, followed by a summary row
+ * showing which part of the map is visible and how many boxes are on their destinations.
+ * The cost of a frame then depends on the window size rather than the map size.
  */
 public class TerminalRenderingEngine implements RenderingEngine {
+
+    private static final byte ESCAPE = 0x1b;
+
+    private static final byte[] CLEAR_SCREEN = {ESCAPE, '[', 'H', ESCAPE, '[', '2', 'J'};
+
+    /**
+     * Longest escape sequence written per cell: ESC [ row ; column H and the cell itself.
+     */
+    private static final int MAX_CELL_UPDATE = 2 + 10 + 1 + 10 + 1 + 1;
+
     private final PrintStream outputSteam;
+
+    private final boolean incremental;
+
+    /**
+     * The frame being drawn as ASCII bytes, each row followed by a line feed.
+     * Swapped with {@link #lastFrame} after drawing and reused as long as the map size does not change.
+     */
+    private byte[] frame = new byte[0];
+
+    /**
+     * The previously drawn frame laid out as {@link #frame}, or null if nothing has been drawn yet.
+     */
+    private byte[] lastFrame;
+
+    /**
+     * Buffer for the escape sequences of an incremental frame, grown on demand.
+     */
+    private byte[] updates = new byte[0];
+
+    /**
+     * Buffer for the summary row drawn below the window in viewport mode, grown on demand.
+     */
+    private byte[] summary = new byte[0];
+
+    private int lastWidth;
+
+    private int lastHeight;
+
+    @Nullable
+    private Viewport viewport;
+
+    private int left;
+
+    private int top;
+
+    /**
+     * Set by {@link #invalidate()}, possibly from another thread, and consumed by the next frame.
+     */
+    private volatile boolean invalidated;
+
+    /**
+     * Size of the terminal in characters, 0 while unknown.
+     */
+    private volatile int terminalColumns;
+
+    private volatile int terminalRows;
+
+    /**
+     * The row the cursor was parked on below the last frame, and the rows printed by messages since then.
+     */
+    private int parkedRow;
+
+    private int messageRows;
+
     /**
      * @param outputSteam The {@link PrintStream} to write the output to.
      */
     public TerminalRenderingEngine(PrintStream outputSteam) {
+        this(outputSteam, false);
+    }
+
+    /**
+     * @param outputSteam The {@link PrintStream} to write the output to.
+     * @param incremental Whether to redraw only the cells that changed since the last frame,
+     *                    which requires a terminal understanding ANSI escape sequences.
+     */
+    public TerminalRenderingEngine(PrintStream outputSteam, boolean incremental) {
         this.outputSteam = outputSteam;
+        this.incremental = incremental;
     }
+
     @Override
     public void render(@NotNull GameState state) {
-        final var builder = new StringBuilder();
-        for (int y = 0; y < state.getMapMaxHeight(); y++) {
-            for (int x = 0; x < state.getMapMaxWidth(); x++) {
-                final var entity = state.getEntity(Position.of(x, y));
-                final var charToPrint = switch (entity) {
-                    // TODO
-                    case Wall ignored -> '#';
-                    case Box b -> (char) (b.getPlayerId()+(int) 'a');
-                    case Player p -> (char) (p.getId()+(int) 'A');
-                    case Empty ignored -> {
-                        if (state.getDestinations().contains(Position.of(x, y))){
-                            yield '@';
-                        }
-                        else {
-                            yield '.';
-                        }
-                    }
-                    case null -> ' ';
-                };
-                builder.append(charToPrint);
+        final int mapWidth = state.getMapMaxWidth();
+        final int mapHeight = state.getMapMaxHeight();
+        final int width;
+        final int height;
+        if (viewport == null) {
+            width = mapWidth;
+            height = mapHeight;
+            left = 0;
+            top = 0;
+        } else {
+            width = Math.min(viewport.width(), mapWidth);
+            height = Math.min(viewport.height(), mapHeight);
+            final int cell = state.playerCellById(viewport.playerId());
+            // Keep the window where it was if the followed player is gone.
+            if (cell >= 0) {
+                left = viewport.left(cell % mapWidth, mapWidth);
+                top = viewport.top(cell / mapWidth, mapHeight);
+            } else {
+                left = Math.max(0, Math.min(left, mapWidth - width));
+                top = Math.max(0, Math.min(top, mapHeight - height));
             }
-            builder.append('\n');
         }
-        outputSteam.print(builder);
-    }
-            @Override
-            public void message(@NotNull String content) {
-                // TODO
-                // Hint: System.out is also a PrintStream.
-                outputSteam.print(content);
+        if (invalidated) {
+            invalidated = false;
+            lastFrame = null;
+        }
+        messageRows = 0;
+        parkedRow = height + 1 + (viewport == null ? 0 : 1);
+        final int stride = width + 1;
+        if (frame == null || frame.length != stride * height) {
+            frame = new byte[stride * height];
+        }
+        for (int y = 0; y < height; y++) {
+            final int row = y * stride;
+            for (int x = 0; x < width; x++) {
+                frame[row + x] = charOf(state.cellKind(left + x, top + y));
+            }
+            frame[row + width] = '\n';
+        }
+        final int summaryLength = viewport == null ? 0 : putSummary(state, width, height);
+
+        if (!incremental) {
+            outputSteam.write(frame, 0, frame.length);
+            outputSteam.write(summary, 0, summaryLength);
+        } else if (lastFrame == null || width != lastWidth || height != lastHeight) {
+            outputSteam.write(CLEAR_SCREEN, 0, CLEAR_SCREEN.length);
+            outputSteam.write(frame, 0, frame.length);
+            outputSteam.write(summary, 0, summaryLength);
+        } else {
+            int length = 0;
+            for (int i = 0; i < frame.length; i++) {
+                if (frame[i] != lastFrame[i]) {
+                    reserveUpdates(length, MAX_CELL_UPDATE);
+                    length = putCursor(updates, length, i / stride + 1, i % stride + 1);
+                    updates[length++] = frame[i];
+                }
             }
-        }
\ No newline at end of file
+            reserveUpdates(length, 2 * MAX_CELL_UPDATE + 6 + summaryLength);
+            if (summaryLength > 0) {
+                // Redraw the summary without its line feed and erase what is left of the previous one.
+                length = putCursor(updates, length, height + 1, 1);
+                System.arraycopy(summary, 0, updates, length, summaryLength - 1);
+                length += summaryLength - 1;
+                updates[length++] = ESCAPE;
+                updates[length++] = '[';
+                updates[length++] = 'K';
+            }
+            // Park the cursor below the map and clear the messages of the previous frame.
+            length = putCursor(updates, length, parkedRow, 1);
+            updates[length++] = ESCAPE;
+            updates[length++] = '[';
+            updates[length++] = 'J';
+            outputSteam.write(updates, 0, length);
+        }
+        outputSteam.flush();
+
+        final byte[] drawn = frame;
+        frame = lastFrame;
+        lastFrame = drawn;
+        lastWidth = width;
+        lastHeight = height;
+    }
+
+    /**
+     * Grow {@link #updates} so that at least {@code needed} bytes fit after the first {@code length} ones.
+     */
+    private void reserveUpdates(int length, int needed) {
+        if (updates.length - length < needed) {
+            updates = Arrays.copyOf(updates, Math.max(2 * updates.length, length + needed));
+        }
+    }
+
+    /**
+     * Restrict rendering to a window around a player.
+     * The next frame is drawn in full if the window size changes.
+     *
+     * @param viewport The window to render, or null to render the whole map.
+     */
+    @Override
+    public void setViewport(@Nullable Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    /**
+     * Fill {@link #summary} with a bar marking the visible columns of the map, followed by the visible ranges
+     * and the number of boxes on destinations, e.g. {@code ---===--- x 3-5/9 y 0-4/5 goals 1/2}.
+     * The bar is as wide as the window, so the row costs as much as a row of the window.
+     *
+     * @return the length of the row, including the line feed.
+     */
+    private int putSummary(GameState state, int width, int height) {
+        final int mapWidth = state.getMapMaxWidth();
+        final int mapHeight = state.getMapMaxHeight();
+        final int capacity = width + 6 * 11 + 16;
+        if (summary.length < capacity) {
+            summary = new byte[capacity];
+        }
+        int length = 0;
+        for (int i = 0; i < width; i++) {
+            // Column i of the bar stands for the map columns [from, to).
+            final long from = (long) i * mapWidth / width;
+            final long to = Math.max(from + 1, (long) (i + 1) * mapWidth / width);
+            summary[length++] = from < left + width && to > left ? (byte) '=' : (byte) '-';
+        }
+        length = putText(summary, length, " x ");
+        length = putRange(summary, length, left, width, mapWidth);
+        length = putText(summary, length, " y ");
+        length = putRange(summary, length, top, height, mapHeight);
+        length = putText(summary, length, " goals ");
+        length = putDecimal(summary, length, state.boxesOnGoal());
+        summary[length++] = '/';
+        length = putDecimal(summary, length, state.destinationCount());
+        summary[length++] = '\n';
+        return length;
+    }
+
+    private static int putRange(byte[] buffer, int length, int origin, int size, int total) {
+        length = putDecimal(buffer, length, origin);
+        buffer[length++] = '-';
+        length = putDecimal(buffer, length, origin + size - 1);
+        buffer[length++] = '/';
+        return putDecimal(buffer, length, total);
+    }
+
+    private static int putText(byte[] buffer, int length, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+        return length;
+    }
+
+    /**
+     * Forget the previously drawn frame, so that the next frame is drawn in full.
+     * This is needed in incremental mode when something else has drawn over the map, e.g. after the terminal is resized.
+     * It may be called from any thread.
+     */
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    /**
+     * Tell the engine the size of the terminal, e.g. from a {@link TerminalSizeWatcher}. The frame is drawn in full
+     * after the size changes, as the terminal may have reflowed or scrolled it, and messages are known to scroll the
+     * screen only when they reach its bottom. It may be called from any thread.
+     *
+     * @param columns The number of columns.
+     * @param rows    The number of rows.
+     */
+    public void setTerminalSize(int columns, int rows) {
+        if (columns != terminalColumns || rows != terminalRows) {
+            terminalColumns = columns;
+            terminalRows = rows;
+            invalidate();
+        }
+    }
+
+    /**
+     * Write the escape sequence moving the cursor to the given 1-based row and column.
+     *
+     * @return the length of the buffer after writing.
+     */
+    private static int putCursor(byte[] buffer, int length, int row, int column) {
+        buffer[length++] = ESCAPE;
+        buffer[length++] = '[';
+        length = putDecimal(buffer, length, row);
+        buffer[length++] = ';';
+        length = putDecimal(buffer, length, column);
+        buffer[length++] = 'H';
+        return length;
+    }
+
+    private static int putDecimal(byte[] buffer, int length, int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return length + digits;
+    }
+
+    private static byte charOf(int cellKind) {
+        return switch (CellKind.kindOf(cellKind)) {
+            case CellKind.WALL -> '#';
+            case CellKind.BOX -> (byte) ('a' + CellKind.ownerOf(cellKind));
+            case CellKind.PLAYER -> (byte) ('A' + CellKind.ownerOf(cellKind));
+            case CellKind.EMPTY -> CellKind.isDestination(cellKind) ? (byte) '@' : (byte) '.';
+            default -> ' ';
+        };
+    }
+
+    /**
+     * Print a message below the map. In incremental mode, the next frame is drawn in full if the message may have
+     * scrolled the screen, which is always assumed while the terminal size is unknown.
+     *
+     * @param content The message
+     */
+    @Override
+    public void message(@NotNull String content) {
+        outputSteam.println(content);
+        if (!incremental) {
+            return;
+        }
+        final int columns = terminalColumns;
+        final int rows = terminalRows;
+        if (columns <= 0 || rows <= 0) {
+            invalidate();
+            return;
+        }
+        for (final var line : content.split("\n", -1)) {
+            messageRows += Math.max(1, (line.length() + columns - 1) / columns);
+        }
+        if (parkedRow + messageRows > rows) {
+            invalidate();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package hk.ust.comp3021.tui;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link TerminalRenderingEngine} informed of the size of the controlling terminal, so that it redraws the
+ * whole frame after the terminal is resized.
+ * <p>
+ * Java cannot handle {@code SIGWINCH}, so the size is polled with {@code stty size} on a daemon thread.
+ * If the size cannot be read, e.g. when there is no Unix terminal, the watcher stops, and the engine keeps treating
+ * the size as unknown.
+ */
+public final class TerminalSizeWatcher {
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private static final File TERMINAL = new File("/dev/tty");
+
+    private TerminalSizeWatcher() {
+    }
+
+    /**
+     * Start polling the terminal size for a rendering engine until the program exits.
+     *
+     * @param renderingEngine The engine to tell the terminal size.
+     */
+    public static void start(@NotNull TerminalRenderingEngine renderingEngine) {
+        final var thread = new Thread(() -> watch(renderingEngine), "sokoban-terminal-size");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void watch(TerminalRenderingEngine renderingEngine) {
+        try {
+            while (true) {
+                final var process = new ProcessBuilder("stty", "size")
+                    .redirectInput(TERMINAL)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+                final var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+                if (process.waitFor() != 0) {
+                    return;
+                }
+                // stty prints the number of rows, then the number of columns.
+                final var size = output.trim().split("\\s+");
+                if (size.length != 2) {
+                    return;
+                }
+                renderingEngine.setTerminalSize(Integer.parseInt(size[1]), Integer.parseInt(size[0]));
+                TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+            }
+        } catch (IOException | NumberFormatException e) {
+            // No usable terminal, the size stays unknown.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import hk.ust.comp3021.game.AbstractSokobanGame;
 import hk.ust.comp3021.game.GameState;
 import hk.ust.comp3021.game.InputEngine;
 import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.utils.StringResources;
 
 /**
  * A Sokoban game running in the terminal.
@@ -28,6 +29,20 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
      * @throws IllegalArgumentException when there are more than two players in the map.
      */
     public TerminalSokobanGame(GameState gameState, TerminalInputEngine inputEngine, TerminalRenderingEngine renderingEngine) {
+        this(gameState, (InputEngine) inputEngine, renderingEngine);
+    }
+
+    /**
+     * Create a new instance of TerminalSokobanGame with any engines, e.g. an {@link AsyncRenderingEngine}
+     * wrapping a {@link TerminalRenderingEngine}.
+     * An {@link AsyncRenderingEngine} is closed when the game ends, after the last message is drawn.
+     *
+     * @param gameState       The game state.
+     * @param inputEngine     the input engine.
+     * @param renderingEngine the rendering engine.
+     * @throws IllegalArgumentException when there are more than two players in the map.
+     */
+    public TerminalSokobanGame(GameState gameState, InputEngine inputEngine, RenderingEngine renderingEngine) {
         super(gameState);
         this.inputEngine = inputEngine;
         this.renderingEngine = renderingEngine;
@@ -41,25 +56,37 @@ public class TerminalSokobanGame extends AbstractSokobanGame {
     @Override
     public void run() {
         // TODO
-        renderingEngine.message("Sokoban game is ready.\n");
+        renderingEngine.message(StringResources.GAME_READY_MESSAGE);
         renderingEngine.render(state);
-        if(state.getUndoQuota().orElse(0) != -1){renderingEngine.message("\nUndo Quota: "+state.getUndoQuota().orElse(0)+"\n");}
-        else{renderingEngine.message("\nUnlimited\n");}
+        if(state.getUndoQuota().orElse(0) != -1){renderingEngine.message(String.format(StringResources.UNDO_QUOTA_TEMPLATE, state.getUndoQuota().orElse(0)));}
+        else{renderingEngine.message(StringResources.UNDO_QUOTA_UNLIMITED);}
         while (true){
             var actionResult = processAction(inputEngine.fetchAction());
             if (actionResult instanceof ActionResult.Failed fail) {
                 renderingEngine.message(fail.getReason());
+            } else if (actionResult instanceof ActionResult.Success success && success.getWarning() != null) {
+                renderingEngine.message(success.getWarning());
+            }
+            final boolean stop = actionResult.getAction() instanceof Exit || shouldStop();
+            // Apply the rest of a batch of actions before rendering once.
+            if (!stop && inputEngine.hasPendingActions()) {
+                continue;
             }
             renderingEngine.render(state);
-            if(state.getUndoQuota().orElse(0) != -1){renderingEngine.message("\nUndo Quota: "+state.getUndoQuota().orElse(0)+"\n");}
-            else{renderingEngine.message("\nUnlimited\n");}
-            if (actionResult.getAction() instanceof Exit || shouldStop()){
-                renderingEngine.message("Game exits.\n");
+            if(state.getUndoQuota().orElse(0) != -1){renderingEngine.message(String.format(StringResources.UNDO_QUOTA_TEMPLATE, state.getUndoQuota().orElse(0)));}
+            else{renderingEngine.message(StringResources.UNDO_QUOTA_UNLIMITED);}
+            if (stop){
+                renderingEngine.message(StringResources.GAME_EXIT_MESSAGE);
                 break;
             }
         }
         if (state.isWin()){
-            renderingEngine.message("You win.");
+            renderingEngine.message(StringResources.WIN_MESSAGE);
+        } else if (isStopWhenDeadlocked() && state.isDeadlocked()) {
+            renderingEngine.message(StringResources.DEADLOCK_MESSAGE);
+        }
+        if (renderingEngine instanceof AsyncRenderingEngine asyncRenderingEngine) {
+            asyncRenderingEngine.close();
         }
 
     }
@@ -1,8 +1,12 @@
 package hk.ust.comp3021.utils;
 
+import java.io.Serial;
+
 /**
  * Throw to indicate that the feature is not implemented.
  */
 public class NotImplementedException extends RuntimeException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
 }
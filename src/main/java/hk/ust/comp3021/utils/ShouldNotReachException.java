@@ -1,10 +1,15 @@
 package hk.ust.comp3021.utils;
 
+import java.io.Serial;
+
 /**
  * Thrown when a branch should not be reached. Used to avoid compilation error.
  */
 public class ShouldNotReachException extends RuntimeException {
 
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     /**
      * Create a new should not reach exception.
      */
@@ -12,9 +12,13 @@ public class StringResources {
     public static final String UNDO_QUOTA_RUN_OUT = "You have run out of your undo quota.";
 
     public static final String PLAYER_NOT_FOUND = "Player not found.";
+    public static final String DEAD_SQUARE_MESSAGE = "The box can no longer reach a destination.";
 
     public static final String GAME_EXIT_MESSAGE = "Game exits.";
     public static final String WIN_MESSAGE = "You win.";
+    public static final String DEADLOCK_MESSAGE = "The game can no longer be won.";
+
+    public static final String REPLAY_SUMMARY_TEMPLATE = "Replayed %d steps, %d failed.";
 
     public static final String EXIT_COMMAND_TEXT = "exit";
 }
@@ -0,0 +1,46 @@
+package hk.ust.comp3021;
+
+import hk.ust.comp3021.entities.Wall;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuiltInMapsTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testLoadBuiltInMaps() {
+        for (String name : BuiltInMaps.NAMES) {
+            final var gameMap = BuiltInMaps.get(name);
+            assertTrue(gameMap.isFrozen());
+            assertSame(gameMap, BuiltInMaps.get(name));
+        }
+        final var gameMap = BuiltInMaps.get("map00");
+        assertEquals(6, gameMap.getMaxWidth());
+        assertEquals(6, gameMap.getMaxHeight());
+        assertEquals(5, gameMap.getUndoLimit().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBuiltInMapsAreShared() {
+        final var gameMap = BuiltInMaps.get("map00");
+        final var first = new GameState(gameMap);
+        final var second = new GameState(gameMap);
+        first.move(Position.of(1, 1), Position.of(1, 2));
+
+        assertEquals(Position.of(1, 1), second.getPlayerPositionById(0));
+        assertThrows(UnsupportedOperationException.class, () -> gameMap.putEntity(Position.of(1, 1), new Wall()));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnknownBuiltInMap() {
+        assertFalse(BuiltInMaps.contains("map99"));
+        assertThrows(IllegalArgumentException.class, () -> BuiltInMaps.get("map99"));
+    }
+}
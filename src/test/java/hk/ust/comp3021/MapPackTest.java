@@ -0,0 +1,72 @@
+package hk.ust.comp3021;
+
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapPackTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private static List<String> levels(int count) {
+        final var levels = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            levels.add(i + "\n" + "#".repeat(i + 5) + "\n#A" + ".".repeat(i) + "a@#\n" + "#".repeat(i + 5) + "\n");
+        }
+        return levels;
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testLoadLevel() throws IOException {
+        final var packFile = tempDir.resolve("levels.spack");
+        MapPack.build(packFile, levels(100));
+
+        try (var pack = MapPack.open(packFile)) {
+            assertEquals(100, pack.size());
+            final var level = pack.loadLevel(42);
+            assertEquals(47, level.getMaxWidth());
+            assertEquals(42, level.getUndoLimit().orElse(null));
+            assertEquals(List.of(Position.of(45, 1)), List.copyOf(level.getDestinations()));
+            assertThrows(IndexOutOfBoundsException.class, () -> pack.loadLevel(100));
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testIterateLevels() throws IOException {
+        final var packFile = tempDir.resolve("levels.spack");
+        MapPack.build(packFile, levels(10));
+
+        try (var pack = MapPack.open(packFile)) {
+            int index = 0;
+            for (GameMap level : pack) {
+                assertEquals(index++, level.getUndoLimit().orElse(null));
+            }
+            assertEquals(10, index);
+        }
+        assertEquals(3, SokobanGameFactory.loadGameMap(packFile, 3).getUndoLimit().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testInvalidPack() throws IOException {
+        final var packFile = tempDir.resolve("levels.spack");
+        assertThrows(IllegalArgumentException.class, () -> MapPack.build(packFile, List.of("1\n#####\n#AA@#\n#####\n")));
+
+        Files.writeString(packFile, "not a pack");
+        assertThrows(IllegalArgumentException.class, () -> MapPack.open(packFile));
+    }
+}
@@ -8,8 +8,11 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SokobanGameFactoryTest {
 
@@ -37,5 +40,56 @@ class SokobanGameFactoryTest {
         assertEquals(233, gameMap.getUndoLimit().orElse(null));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBinaryMapRoundTrip() throws IOException {
+        final var textFile = tempDir.resolve("tempMap.map");
+        Files.writeString(textFile, """
+            -1
+              #####
+            ###A.@##
+            #@bB..a#
+            ########
+            """);
+        final var binaryFile = tempDir.resolve("tempMap.smap");
+        final var original = SokobanGameFactory.loadGameMap(textFile);
+        SokobanGameFactory.writeBinaryGameMap(original, binaryFile);
+        final var loaded = SokobanGameFactory.loadGameMap(binaryFile);
+
+        assertEquals(original.getMaxWidth(), loaded.getMaxWidth());
+        assertEquals(original.getMaxHeight(), loaded.getMaxHeight());
+        assertEquals(-1, loaded.getUndoLimit().orElse(null));
+        assertEquals(original.getDestinations(), loaded.getDestinations());
+        assertEquals(original.getInit_player_loc(), loaded.getInit_player_loc());
+        assertEquals(original.getInit_box(), loaded.getInit_box());
+        assertEquals(original.getInit_box_loc(), loaded.getInit_box_loc());
+        for (int y = 0; y < original.getMaxHeight(); y++) {
+            for (int x = 0; x < original.getMaxWidth(); x++) {
+                assertEquals(original.cellKind(x, y), loaded.cellKind(x, y));
+            }
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCreateGameFromNamedMap() throws IOException {
+        final var packFile = tempDir.resolve("levels" + MapPack.EXTENSION);
+        MapPack.build(packFile, List.of("""
+            233
+            #####
+            #Aa@#
+            #####
+            """));
+        assertNotNull(SokobanGameFactory.createTUIGame(packFile.toString()));
+        assertThrows(IndexOutOfBoundsException.class, () -> SokobanGameFactory.createTUIGame(packFile.toString(), 1));
+        assertThrows(IllegalArgumentException.class, () -> SokobanGameFactory.createTUIGame("no-such-map"));
+    }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCorruptedBinaryMap() throws IOException {
+        final var binaryFile = tempDir.resolve("broken.smap");
+        Files.write(binaryFile, new byte[]{'S', 'M', 'A', 'P', 1, 0});
+        assertThrows(IllegalArgumentException.class, () -> SokobanGameFactory.loadGameMap(binaryFile));
+    }
 }
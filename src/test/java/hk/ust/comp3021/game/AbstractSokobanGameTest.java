@@ -2,12 +2,22 @@ package hk.ust.comp3021.game;
 
 import hk.ust.comp3021.actions.Action;
 import hk.ust.comp3021.actions.ActionResult;
+import hk.ust.comp3021.actions.BatchResult;
 import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.utils.StringResources;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -31,7 +41,7 @@ class AbstractSokobanGameTest {
         final var result = game.feedActionForProcessing(new Move.Down(0));
 
         assertTrue(result instanceof ActionResult.Success);
-        verify(gameState, times(1)).move(any(), any());
+        verify(gameState, times(1)).move(anyInt(), anyInt());
     }
 
     @Tag(TestKind.PUBLIC)
@@ -52,7 +62,7 @@ class AbstractSokobanGameTest {
         final var result = game.feedActionForProcessing(new Move.Down(0));
 
         assertTrue(result instanceof ActionResult.Failed);
-        verify(gameState, never()).move(any(), any());
+        verify(gameState, never()).move(anyInt(), anyInt());
     }
 
     @Tag(TestKind.PUBLIC)
@@ -73,7 +83,7 @@ class AbstractSokobanGameTest {
         final var result = game.feedActionForProcessing(new Move.Down(0));
 
         assertTrue(result instanceof ActionResult.Success);
-        verify(gameState, times(2)).move(any(), any());
+        verify(gameState, times(2)).move(anyInt(), anyInt());
         verify(gameState, times(1)).checkpoint();
     }
 
@@ -88,6 +98,121 @@ class AbstractSokobanGameTest {
         assertTrue(game.shouldStop());
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testShouldStopWhenDeadlocked() {
+        String mapText = """
+            233
+            ########
+            #......#
+            #.A....#
+            #..ab..#
+            #..a.bB#
+            #......#
+            #@@@@..#
+            ########
+            """;
+        final var gameState = new GameState(TestHelper.parseGameMap(mapText));
+        final var game = new SokobanGameForTesting(gameState);
+        game.feedActionForProcessing(new Move.Left(1));
+        assertFalse(game.shouldStop());
+
+        game.setStopWhenDeadlocked(true);
+        assertTrue(game.shouldStop());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testMoveOutcomes() {
+        String mapText = """
+            233
+            ######
+            #Ab.@#
+            #aB.@#
+            #....#
+            ######
+            """;
+        final var gameState = new GameState(TestHelper.parseGameMap(mapText));
+        final var game = new SokobanGameForTesting(gameState);
+
+        assertEquals(MoveOutcome.HIT_WALL, game.feedMoveForResolving(new Move.Up(0)));
+        assertEquals(MoveOutcome.HIT_WALL, game.feedMoveForResolving(new Move.Right(0)));
+        assertEquals(MoveOutcome.HIT_WALL, game.feedMoveForResolving(new Move.Left(1)));
+        assertEquals(MoveOutcome.PUSH_BLOCKED, game.feedMoveForResolving(new Move.Up(1)));
+        assertEquals(MoveOutcome.PLAYER_NOT_FOUND, game.feedMoveForResolving(new Move.Up(2)));
+        assertEquals(MoveOutcome.PUSHED, game.feedMoveForResolving(new Move.Down(0)));
+        assertEquals(MoveOutcome.HIT_PLAYER, game.feedMoveForResolving(new Move.Left(1)));
+        assertEquals(MoveOutcome.MOVED, game.feedMoveForResolving(new Move.Right(1)));
+        assertEquals(Position.of(1, 2), gameState.getPlayerPositionById(0));
+        assertEquals(Position.of(3, 2), gameState.getPlayerPositionById(1));
+
+        final var failed = game.feedActionForProcessing(new Move.Left(0));
+        assertTrue(failed instanceof ActionResult.Failed);
+        assertEquals("You hit a wall.", ((ActionResult.Failed) failed).getReason());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBatchWithSingleCheckpoint() {
+        String mapText = """
+            233
+            ######
+            #A..@#
+            #....#
+            #a...#
+            ######
+            """;
+        final var testMap = TestHelper.parseGameMap(mapText);
+        final var gameState = spy(new GameState(testMap));
+
+        final var game = new SokobanGameForTesting(gameState);
+        final var result = game.feedActionsForProcessing(
+            List.of(new Move.Right(0), new Move.Right(0), new Move.Up(0), new Move.Down(0)), true);
+
+        assertEquals(2, result.applied());
+        assertFalse(result.isSuccess());
+        assertTrue(result.firstFailure().getAction() instanceof Move.Up);
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        verify(gameState, times(1)).checkpoint();
+
+        game.feedActionForProcessing(new Undo(0));
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testTrainingMode() {
+        String mapText = """
+            233
+            ######
+            #....#
+            #.aA.#
+            #...@#
+            ######
+            """;
+        final var testMap = TestHelper.parseGameMap(mapText);
+
+        final var off = new SokobanGameForTesting(new GameState(testMap));
+        final var allowed = off.feedActionForProcessing(new Move.Left(0));
+        assertNull(assertInstanceOf(ActionResult.Success.class, allowed).getWarning());
+
+        final var flagState = new GameState(testMap);
+        final var flag = new SokobanGameForTesting(flagState);
+        flag.setTrainingMode(TrainingMode.FLAG);
+        final var flagged = flag.feedActionForProcessing(new Move.Left(0));
+        assertEquals(StringResources.DEAD_SQUARE_MESSAGE, assertInstanceOf(ActionResult.Success.class, flagged).getWarning());
+        assertInstanceOf(Box.class, flagState.getEntity(Position.of(1, 2)));
+
+        final var rejectState = new GameState(testMap);
+        final var reject = new SokobanGameForTesting(rejectState);
+        reject.setTrainingMode(TrainingMode.REJECT);
+        assertEquals(MoveOutcome.DEAD_SQUARE, reject.feedMoveForResolving(new Move.Left(0)));
+        final var rejected = reject.feedActionForProcessing(new Move.Left(0));
+        assertEquals(StringResources.DEAD_SQUARE_MESSAGE, assertInstanceOf(ActionResult.Failed.class, rejected).getReason());
+        assertInstanceOf(Box.class, rejectState.getEntity(Position.of(2, 2)));
+        assertEquals(MoveOutcome.MOVED, reject.feedMoveForResolving(new Move.Down(0)));
+    }
+
     private static class SokobanGameForTesting extends AbstractSokobanGame {
 
         protected SokobanGameForTesting(GameState gameState) {
@@ -101,5 +226,13 @@ class AbstractSokobanGameTest {
         public ActionResult feedActionForProcessing(Action action) {
             return processAction(action);
         }
+
+        public MoveOutcome feedMoveForResolving(Move move) {
+            return resolveMove(move);
+        }
+
+        public BatchResult feedActionsForProcessing(List<Action> actions, boolean singleCheckpoint) {
+            return processActions(actions, singleCheckpoint);
+        }
     }
 }
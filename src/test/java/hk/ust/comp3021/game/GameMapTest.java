@@ -9,6 +9,10 @@ import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GameMapTest {
@@ -86,4 +90,104 @@ class GameMapTest {
         assertTrue(entity instanceof Wall);
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testTerrainQueries() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        assertTrue(gameMap.isWall(0, 0));
+        assertFalse(gameMap.isWall(1, 1));
+        assertTrue(gameMap.isDestination(4, 1));
+        assertFalse(gameMap.isDestination(2, 4));
+        assertFalse(gameMap.isWall(-1, 0));
+        assertFalse(gameMap.isDestination(6, 1));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testNonRectangularMap() {
+        final var gameMap = TestHelper.parseGameMap("""
+            233
+             ######
+            ##...A#
+            #@aa..#
+            #@...#
+            ######
+            """);
+        assertEquals(7, gameMap.getMaxWidth());
+        assertNull(gameMap.getEntity(Position.of(0, 0)));
+        assertNull(gameMap.getEntity(Position.of(6, 3)));
+        assertInstanceOf(Wall.class, gameMap.getEntity(Position.of(5, 3)));
+        assertEquals(List.of(Position.of(2, 2), Position.of(3, 2)), gameMap.getInit_box_loc());
+        assertEquals(List.of(Position.of(5, 1)), gameMap.getInit_player_loc());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPutEntity() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+        gameMap.putEntity(Position.of(2, 2), new Player(1));
+        gameMap.putEntity(Position.of(3, 2), new Box(1));
+        gameMap.putEntity(Position.of(2, 1), new Wall());
+
+        assertEquals(1, assertInstanceOf(Player.class, gameMap.getEntity(Position.of(2, 2))).getId());
+        assertEquals(1, assertInstanceOf(Box.class, gameMap.getEntity(Position.of(3, 2))).getPlayerId());
+        assertTrue(gameMap.isWall(2, 1));
+        assertEquals(Set.of(0, 1), gameMap.getPlayerIds());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadSquares() {
+        final var gameMap = TestHelper.parseGameMap(rectangularMap);
+
+        assertTrue(gameMap.isDeadSquare(1, 1));
+        assertTrue(gameMap.isDeadSquare(1, 3));
+        assertTrue(gameMap.isDeadSquare(Position.of(3, 5)));
+        assertTrue(gameMap.isDeadSquare(4, 5));
+        assertFalse(gameMap.isDeadSquare(2, 1));
+        assertFalse(gameMap.isDeadSquare(2, 3));
+        assertFalse(gameMap.isDeadSquare(4, 1));
+        assertFalse(gameMap.isDeadSquare(4, 4));
+        assertFalse(gameMap.isDeadSquare(0, 0));
+        assertFalse(gameMap.isDeadSquare(-1, 2));
+
+        // A new wall cuts (4, 4) off from the destinations.
+        gameMap.putEntity(Position.of(4, 3), new Wall());
+        assertTrue(gameMap.isDeadSquare(4, 4));
+        assertTrue(new GameState(gameMap).isDeadSquare(4 * 6 + 4));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPositionsInterned() {
+        final var tall = new GameMap(1, 1 << 20, Set.of(), 0);
+        assertSame(Position.of(0, 1000), Position.of(0, 1000));
+        // A wide map created while the tall one is in use still gets its positions interned.
+        final var wide = new GameMap(2000, 10, Set.of(), 0);
+        assertSame(Position.of(1999, 9), Position.of(1999, 9));
+        assertNotSame(Position.of(2000, 9), Position.of(2000, 9));
+        assertEquals(1, tall.getMaxWidth());
+        assertEquals(2000, wide.getMaxWidth());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParseCharArray() {
+        final var gameMap = GameMap.parse(CharBuffer.wrap(rectangularMap.toCharArray()));
+        assertEquals(6, gameMap.getMaxWidth());
+        assertEquals(7, gameMap.getMaxHeight());
+        assertEquals(2, gameMap.getDestinations().size());
+        assertInstanceOf(Player.class, gameMap.getEntity(Position.of(1, 1)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParseValidation() {
+        assertThrows(IllegalArgumentException.class, () -> GameMap.parse("-2\n#####\n#Aa@#\n#####\n"));
+        assertThrows(IllegalArgumentException.class, () -> GameMap.parse("1\n#######\n#Aa@A@#\n#######\n"));
+        assertThrows(IllegalArgumentException.class, () -> GameMap.parse("1\n#######\n#Aab@@#\n#######\n"));
+        assertThrows(IllegalArgumentException.class, () -> GameMap.parse("1\n######\n#Aa@@#\n######\n"));
+        assertThrows(IllegalArgumentException.class, () -> GameMap.parse("1\n#####\n#...#\n#####\n"));
+        assertThrows(IllegalArgumentException.class, () -> GameMap.parse("1\n######\n#ABa@#\n######\n"));
+    }
 }
@@ -1,7 +1,10 @@
 package hk.ust.comp3021.game;
 
+import hk.ust.comp3021.actions.Move;
 import hk.ust.comp3021.entities.Box;
 import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.entities.Player;
+import hk.ust.comp3021.entities.Wall;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
@@ -9,6 +12,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -118,4 +122,395 @@ class GameStateTest {
         assertEquals(232, gameState.getUndoQuota().orElse(null));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testMoveDoesNotAffectOtherStates() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            ######
+            #A.a@#
+            #..a@#
+            ######
+            """);
+        final var first = new GameState(testMap);
+        final var second = new GameState(testMap);
+        first.move(Position.of(3, 1), Position.of(4, 1));
+        first.move(Position.of(1, 1), Position.of(2, 1));
+
+        assertEquals(Position.of(1, 1), second.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, second.getEntity(Position.of(3, 1)));
+        assertInstanceOf(Empty.class, second.getEntity(Position.of(4, 1)));
+        assertInstanceOf(Player.class, testMap.getEntity(Position.of(1, 1)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testEntityLookupWithManyPlayers() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #APp@#
+            #xXa@@#
+            ######
+            """));
+
+        assertEquals(Position.of(2, 2), gameState.getPlayerPositionById('X' - 'A'));
+        assertEquals('P' - 'A', assertInstanceOf(Box.class, gameState.getEntity(Position.of(3, 1))).getPlayerId());
+        assertEquals('X' - 'A', assertInstanceOf(Player.class, gameState.getEntity(Position.of(2, 2))).getId());
+        assertInstanceOf(Wall.class, gameState.getEntity(Position.of(5, 1)));
+        assertNull(gameState.getEntity(Position.of(6, 1)));
+        assertFalse(gameState.isWin());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCellKindAndSharedEntities() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #A.a@#
+            #..a@#
+            ######
+            """));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+
+        final int box = gameState.cellKind(4, 1);
+        assertEquals(CellKind.BOX, CellKind.kindOf(box));
+        assertTrue(CellKind.isDestination(box));
+        assertEquals(0, CellKind.ownerOf(box));
+        assertEquals(CellKind.PLAYER, CellKind.kindOf(gameState.cellKind(1, 1)));
+        assertEquals(CellKind.WALL, gameState.cellKind(0, 0));
+        assertEquals(CellKind.EMPTY | CellKind.DESTINATION, gameState.cellKind(4, 2));
+        assertEquals(CellKind.VOID, gameState.cellKind(-1, 7));
+
+        assertSame(gameState.getEntity(Position.of(0, 0)), gameState.getEntity(Position.of(5, 2)));
+        assertSame(gameState.getEntity(Position.of(4, 1)), gameState.getEntity(Position.of(3, 2)));
+        assertSame(gameState.getEntity(Position.of(2, 1)), gameState.getEntity(Position.of(1, 2)));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPackedCoordinates() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #.Aa@#
+            #..a@#
+            ######
+            """));
+        final int player = gameState.playerCellById(0);
+        assertEquals(gameState.pack(2, 1), player);
+        assertEquals(-1, gameState.pack(6, 1));
+        assertSame(Position.of(2, 1), gameState.positionOf(player));
+
+        gameState.move(gameState.pack(3, 1), gameState.pack(4, 1));
+        gameState.move(player, gameState.pack(3, 1));
+
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        assertInstanceOf(Box.class, gameState.entityAt(gameState.pack(4, 1)));
+        assertTrue(gameState.isDestination(gameState.pack(4, 1)));
+
+        gameState.checkpoint();
+        gameState.undo();
+        assertEquals(player, gameState.playerCellById(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoMultipleCheckpoints() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            #######
+            #A....#
+            #a...@#
+            #######
+            """));
+        for (int x = 1; x < 5; x++) {
+            gameState.move(Position.of(x, 1), Position.of(x + 1, 1));
+            gameState.checkpoint();
+        }
+        gameState.undo();
+        gameState.undo();
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        gameState.undo();
+        gameState.undo();
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+        gameState.undo();
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+        assertEquals(-1, gameState.getUndoQuota().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoHistoryIsBoundedByUndoLimit() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            2
+            #######
+            #A....#
+            #a...@#
+            #######
+            """));
+        for (int x = 1; x < 5; x++) {
+            gameState.move(Position.of(x, 1), Position.of(x + 1, 1));
+            gameState.checkpoint();
+        }
+        gameState.undo();
+        gameState.undo();
+        assertEquals(Position.of(3, 1), gameState.getPlayerPositionById(0));
+        assertEquals(0, gameState.getUndoQuota().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUndoRevertsMovesSinceLastCheckpoint() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            #######
+            #A....#
+            #a...@#
+            #######
+            """));
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        gameState.checkpoint();
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+
+        gameState.undo();
+        assertEquals(Position.of(2, 1), gameState.getPlayerPositionById(0));
+        gameState.undo();
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+        assertEquals(231, gameState.getUndoQuota().orElse(null));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBoxesOnGoal() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            #######
+            #A.a@.#
+            #B.b@.#
+            #######
+            """));
+        assertEquals(2, gameState.destinationCount());
+        assertEquals(0, gameState.boxesOnGoal());
+
+        gameState.move(Position.of(3, 2), Position.of(4, 2));
+        gameState.checkpoint();
+        assertEquals(1, gameState.boxesOnGoal());
+        assertEquals(0, gameState.boxesOnGoal(0));
+        assertEquals(1, gameState.boxesOnGoal(1));
+        assertFalse(gameState.isWin());
+
+        gameState.move(Position.of(3, 1), Position.of(4, 1));
+        assertTrue(gameState.isWin());
+        gameState.move(Position.of(4, 1), Position.of(5, 1));
+        assertEquals(1, gameState.boxesOnGoal());
+
+        gameState.undo();
+        gameState.undo();
+        assertEquals(0, gameState.boxesOnGoal());
+        assertEquals(0, gameState.boxesOnGoal(1));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSnapshotIsReadOnlyAndIndependent() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #Aa.@#
+            ######
+            """));
+        final var snapshot = gameState.snapshot();
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+
+        assertEquals(Position.of(1, 1), snapshot.getPlayerPositionById(0));
+        assertEquals(Box.of(0), snapshot.getEntity(Position.of(2, 1)));
+        assertEquals(Box.of(0), gameState.getEntity(Position.of(3, 1)));
+        assertEquals(snapshot.getUndoQuota(), gameState.getUndoQuota());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.move(Position.of(1, 1), Position.of(2, 1)));
+        assertThrows(UnsupportedOperationException.class, snapshot::checkpoint);
+        assertThrows(UnsupportedOperationException.class, snapshot::undo);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testRecycledSnapshot() {
+        for (final var undoLimit : new String[]{"0", "233"}) {
+            final var gameState = new GameState(TestHelper.parseGameMap(undoLimit + """
+
+                ######
+                #Aa.@#
+                ######
+                """));
+            final var first = gameState.snapshot();
+            gameState.move(Position.of(2, 1), Position.of(3, 1));
+            gameState.move(Position.of(1, 1), Position.of(2, 1));
+            gameState.checkpoint();
+
+            final var second = gameState.snapshot(first);
+            assertSame(first, second);
+            assertEquals(Position.of(2, 1), second.getPlayerPositionById(0));
+            assertEquals(Box.of(0), second.getEntity(Position.of(3, 1)));
+            assertEquals(gameState.stateHash(), second.stateHash());
+            assertThrows(UnsupportedOperationException.class, second::checkpoint);
+
+            gameState.move(Position.of(3, 1), Position.of(4, 1));
+            gameState.move(Position.of(2, 1), Position.of(3, 1));
+            assertTrue(gameState.snapshot(second).isWin());
+            if (gameState.getUndoQuota().orElse(-1) != 0) {
+                gameState.undo();
+            }
+            final var third = gameState.snapshot(second);
+            assertEquals(gameState.getPlayerPositionById(0), third.getPlayerPositionById(0));
+            assertEquals(gameState.isWin(), third.isWin());
+            assertEquals(gameState.getUndoQuota(), third.getUndoQuota());
+            assertEquals(gameState.stateHash(), third.stateHash());
+
+            final var other = gameState.copy();
+            assertNotSame(third, other.snapshot(third));
+            assertNotSame(third, gameState.snapshot(null));
+        }
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testLegalMovesDoNotMutate() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            2
+            ######
+            #Ab.@#
+            #aB.@#
+            #....#
+            ######
+            """));
+
+        assertEquals(GameState.DOWN, gameState.legalMoves(0));
+        assertEquals(GameState.RIGHT | GameState.DOWN, gameState.legalMoves(1));
+        assertEquals(0, gameState.legalMoves(2));
+        assertEquals(MoveOutcome.PUSHED, gameState.tryMove(new Move.Down(0)));
+        assertEquals(MoveOutcome.HIT_WALL, gameState.tryMove(new Move.Right(0)));
+        assertEquals(MoveOutcome.PUSH_BLOCKED, gameState.tryMove(new Move.Up(1)));
+        assertEquals(MoveOutcome.HIT_PLAYER, gameState.tryMove(1, -1, -1));
+
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+        assertEquals(Box.of(0), gameState.getEntity(Position.of(1, 2)));
+        assertEquals(Optional.of(2), gameState.getUndoQuota());
+        gameState.undo();
+        assertEquals(Position.of(1, 1), gameState.getPlayerPositionById(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCopy() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            -1
+            ######
+            #Aa.@#
+            ######
+            """));
+        gameState.move(Position.of(2, 1), Position.of(3, 1));
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        gameState.checkpoint();
+
+        final var withHistory = gameState.copy();
+        final var withoutHistory = gameState.copy(false);
+        withHistory.undo();
+        withoutHistory.undo();
+        assertEquals(Position.of(1, 1), withHistory.getPlayerPositionById(0));
+        assertEquals(Position.of(2, 1), withoutHistory.getPlayerPositionById(0));
+        assertEquals(Position.of(2, 1), gameState.getPlayerPositionById(0));
+
+        withoutHistory.move(Position.of(3, 1), Position.of(4, 1));
+        assertTrue(withoutHistory.isWin());
+        assertFalse(gameState.isWin());
+        assertEquals(Box.of(0), gameState.getEntity(Position.of(3, 1)));
+
+        final var snapshot = gameState.snapshot();
+        assertSame(snapshot, snapshot.snapshot());
+        final var copyOfSnapshot = snapshot.copy();
+        copyOfSnapshot.move(Position.of(2, 1), Position.of(1, 1));
+        assertEquals(Position.of(2, 1), snapshot.getPlayerPositionById(0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testDeadlock() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ########
+            #......#
+            #.A....#
+            #..ab..#
+            #..a.bB#
+            #......#
+            #@@@@..#
+            ########
+            """));
+        assertFalse(gameState.isDeadlocked());
+        gameState.checkpoint();
+
+        // Player B pushes its box left, closing a 2x2 block with the boxes of player A.
+        gameState.move(Position.of(5, 4), Position.of(4, 4));
+        gameState.move(Position.of(6, 4), Position.of(5, 4));
+        assertTrue(gameState.isDeadlocked());
+        assertTrue(gameState.copy().isDeadlocked());
+
+        gameState.checkpoint();
+        gameState.undo();
+        assertFalse(gameState.isDeadlocked());
+
+        // A box against the bottom wall can still slide to the destinations, but not from the corner.
+        gameState.move(Position.of(5, 4), Position.of(5, 6));
+        assertFalse(gameState.isDeadlocked());
+        gameState.move(Position.of(5, 6), Position.of(6, 6));
+        assertTrue(gameState.isDeadlocked());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testStateHash() {
+        final var testMap = TestHelper.parseGameMap("""
+            233
+            #######
+            #A....#
+            #.a.b.#
+            #....B#
+            #@...@#
+            #######
+            """);
+        final var gameState = new GameState(testMap);
+        final long initial = gameState.stateHash();
+        final long initialNormalized = gameState.normalizedStateHash();
+        assertEquals(initial, new GameState(testMap).stateHash());
+
+        // Player A walks away, undoes a step and walks back.
+        gameState.move(Position.of(1, 1), Position.of(1, 2));
+        gameState.checkpoint();
+        assertNotEquals(initial, gameState.stateHash());
+        assertEquals(initialNormalized, gameState.normalizedStateHash());
+        gameState.move(Position.of(1, 2), Position.of(2, 1));
+        assertEquals(gameState.copy().stateHash(), gameState.stateHash());
+        gameState.undo();
+        assertEquals(Position.of(1, 2), gameState.getPlayerPositionById(0));
+        gameState.move(Position.of(1, 2), Position.of(1, 1));
+        assertEquals(initial, gameState.stateHash());
+
+        // Boxes are told apart by owner, and players by id.
+        final var moved = new GameState(testMap);
+        moved.move(Position.of(2, 2), Position.of(3, 2));
+        final var other = new GameState(testMap);
+        other.move(Position.of(4, 2), Position.of(3, 2));
+        other.move(Position.of(2, 2), Position.of(4, 2));
+        other.move(Position.of(3, 2), Position.of(2, 2));
+        assertNotEquals(initial, other.stateHash());
+        assertNotEquals(moved.stateHash(), other.stateHash());
+
+        // Pushing a box changes the normalized key.
+        gameState.move(Position.of(2, 2), Position.of(2, 3));
+        gameState.move(Position.of(1, 1), Position.of(2, 2));
+        assertNotEquals(initialNormalized, gameState.normalizedStateHash());
+    }
 }
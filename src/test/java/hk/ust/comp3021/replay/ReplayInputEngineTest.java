@@ -0,0 +1,79 @@
+package hk.ust.comp3021.replay;
+
+import hk.ust.comp3021.actions.*;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayInputEngineTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testLurdText() throws IOException {
+        final var inputEngine = new ReplayInputEngine(new ByteArrayInputStream("""
+            # a comment
+            lU rD
+            -p1L p0r x p30
+            """.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(inputEngine.fetchAction() instanceof Move.Left);
+        assertTrue(inputEngine.fetchAction() instanceof Move.Up);
+        assertTrue(inputEngine.fetchAction() instanceof Move.Right);
+        assertTrue(inputEngine.fetchAction() instanceof Move.Down);
+        assertTrue(inputEngine.fetchAction() instanceof Undo);
+        final var left = inputEngine.fetchAction();
+        assertTrue(left instanceof Move.Left);
+        assertEquals(1, left.getInitiator());
+        final var right = inputEngine.fetchAction();
+        assertTrue(right instanceof Move.Right);
+        assertEquals(0, right.getInitiator());
+        assertTrue(inputEngine.fetchAction() instanceof InvalidInput);
+        assertTrue(inputEngine.fetchAction() instanceof InvalidInput);
+        assertTrue(inputEngine.fetchAction() instanceof Exit);
+        assertTrue(inputEngine.fetchAction() instanceof Exit);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBinaryRoundTrip() throws IOException {
+        final List<Action> actions = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            final int id = i % 26;
+            actions.add(switch (i % 5) {
+                case 0 -> new Move.Up(id);
+                case 1 -> new Move.Down(id);
+                case 2 -> new Move.Left(id);
+                case 3 -> new Move.Right(id);
+                default -> new Undo(id);
+            });
+        }
+        final var output = new ByteArrayOutputStream();
+        ReplayInputEngine.writeBinary(actions, output);
+        assertEquals(5 + actions.size(), output.size());
+
+        final var inputEngine = new ReplayInputEngine(new ByteArrayInputStream(output.toByteArray()));
+        for (final var expected : actions) {
+            final var action = inputEngine.fetchAction();
+            assertEquals(expected.getClass(), action.getClass());
+            assertEquals(expected.getInitiator(), action.getInitiator());
+        }
+        assertTrue(inputEngine.fetchAction() instanceof Exit);
+        assertThrows(IllegalArgumentException.class, () -> ReplayInputEngine.encode(new InvalidInput(0, "")));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnsupportedBinaryVersion() {
+        final byte[] log = {'S', 'A', 'C', 'T', 99, 0};
+        assertThrows(IllegalArgumentException.class, () -> new ReplayInputEngine(new ByteArrayInputStream(log)));
+    }
+}
@@ -0,0 +1,75 @@
+package hk.ust.comp3021.replay;
+
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplaySokobanGameTest {
+
+    private static final String MAP = """
+        233
+        #######
+        #A.a.@#
+        #######
+        """;
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testFastForwardToSolution() throws IOException {
+        final var gameState = new GameState(TestHelper.parseGameMap(MAP));
+        final var renderingEngine = new CountingRenderingEngine();
+        final var game = new ReplaySokobanGame(gameState, replay("rlrrr rrr"), renderingEngine, ReplaySokobanGame.UNTIL_END);
+        game.run();
+
+        assertTrue(game.isSolved());
+        assertEquals(5, game.getSteps());
+        assertEquals(0, game.getFailedSteps());
+        assertNull(game.getFirstFailure());
+        assertEquals(1, renderingEngine.frames);
+        assertEquals(List.of("Replayed 5 steps, 0 failed.", "You win."), renderingEngine.messages);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testStopAtStep() throws IOException {
+        final var gameState = new GameState(TestHelper.parseGameMap(MAP));
+        final var game = new ReplaySokobanGame(gameState, replay("lrrr"), null, 2);
+        game.run();
+
+        assertFalse(game.isSolved());
+        assertEquals(2, game.getSteps());
+        assertEquals(1, game.getFailedSteps());
+        assertNotNull(game.getFirstFailure());
+    }
+
+    private static ReplayInputEngine replay(String text) throws IOException {
+        return new ReplayInputEngine(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static class CountingRenderingEngine implements RenderingEngine {
+        int frames;
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void render(@NotNull GameState state) {
+            frames++;
+        }
+
+        @Override
+        public void message(@NotNull String content) {
+            messages.add(content);
+        }
+    }
+}
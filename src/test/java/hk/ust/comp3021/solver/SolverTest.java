@@ -0,0 +1,163 @@
+package hk.ust.comp3021.solver;
+
+import hk.ust.comp3021.BuiltInMaps;
+import hk.ust.comp3021.entities.Box;
+import hk.ust.comp3021.entities.Empty;
+import hk.ust.comp3021.game.GameMap;
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.replay.ReplayInputEngine;
+import hk.ust.comp3021.replay.ReplaySokobanGame;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveBuiltInMaps() throws IOException {
+        for (final var name : BuiltInMaps.NAMES) {
+            final var map = BuiltInMaps.get(name);
+            final var result = new Solver().solve(map);
+            assertTrue(result.isSolved());
+            assertReplaySolves(map, result);
+        }
+        assertEquals(4, new Solver().solve(BuiltInMaps.get("map00")).pushes());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveTwoPlayers() throws IOException {
+        final var map = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.a..@#
+            #.######
+            #B.b..@#
+            ########
+            """);
+        final var result = new Solver().solve(map);
+
+        assertTrue(result.isSolved());
+        assertEquals(6, result.pushes());
+        assertEquals(8, result.moves().size());
+        assertReplaySolves(map, result);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testParallelMatchesSequential() throws IOException {
+        final var parallel = new Solver(Solver.DEFAULT_TIME_LIMIT, Solver.DEFAULT_MEMORY_LIMIT, 4);
+        for (final var name : BuiltInMaps.NAMES) {
+            final var map = BuiltInMaps.get(name);
+            final var result = parallel.solve(map);
+            assertTrue(result.isSolved());
+            assertEquals(new Solver().solve(map).pushes(), result.pushes());
+            assertReplaySolves(map, result);
+        }
+        final var twoPlayers = TestHelper.parseGameMap("""
+            233
+            ########
+            #A.a..@#
+            #.######
+            #B.b..@#
+            ########
+            """);
+        assertEquals(6, parallel.solve(twoPlayers).pushes());
+
+        final var map = BuiltInMaps.get("map01");
+        assertEquals(SolverResult.Status.TIME_LIMIT_EXCEEDED, new Solver(Duration.ofNanos(1), Long.MAX_VALUE, 2).solve(map).status());
+        assertEquals(SolverResult.Status.MEMORY_LIMIT_EXCEEDED, new Solver(Duration.ofMinutes(1), 1, 2).solve(map).status());
+        assertThrows(IllegalArgumentException.class, () -> new Solver(Duration.ofMinutes(1), 1, 0));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testUnsolvable() {
+        final var deadCorner = TestHelper.parseGameMap("""
+            233
+            ######
+            #a..@#
+            #..A.#
+            ######
+            """);
+        assertEquals(SolverResult.Status.UNSOLVABLE, new Solver().solve(deadCorner).status());
+
+        // Only player A may push box a, but A is walled in.
+        final var foreignBox = TestHelper.parseGameMap("""
+            233
+            ########
+            #A#Bb.@#
+            ###.a.@#
+            ########
+            """);
+        final var result = new Solver().solve(foreignBox);
+        assertEquals(SolverResult.Status.UNSOLVABLE, result.status());
+        assertNull(result.moves());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testPlayerInTheWay() {
+        // B's box is already on its destination, and B has to step down into the niche so that A can reach its box.
+        final var map = TestHelper.parseGameMap("""
+            233
+            #########
+            #A.B.a.@#
+            #b@#.####
+            #########
+            """);
+        map.putEntity(Position.of(2, 2), new Box(1));
+        map.putEntity(Position.of(1, 2), new Empty());
+        assertEquals(SolverResult.Status.INCOMPLETE, new Solver().solve(map).status());
+        assertEquals(SolverResult.Status.INCOMPLETE,
+            new Solver(Duration.ofMinutes(1), Long.MAX_VALUE, 2).solve(map).status());
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBudgets() {
+        final var map = BuiltInMaps.get("map01");
+        assertEquals(SolverResult.Status.TIME_LIMIT_EXCEEDED, new Solver(Duration.ofNanos(1), Long.MAX_VALUE).solve(map).status());
+        assertEquals(SolverResult.Status.MEMORY_LIMIT_EXCEEDED, new Solver(Duration.ofMinutes(1), 1).solve(map).status());
+        assertThrows(IllegalArgumentException.class, () -> new Solver(Duration.ZERO, 1));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testSolveFromCurrentState() throws IOException {
+        final var map = BuiltInMaps.get("map00");
+        final var state = new GameState(map);
+        state.move(state.pack(2, 1), state.pack(3, 1));
+        state.move(state.pack(1, 1), state.pack(2, 1));
+
+        final var result = new Solver().solve(state);
+        assertTrue(result.isSolved());
+        assertEquals(3, result.pushes());
+        assertEquals(state.pack(2, 1), state.playerCellById(0));
+    }
+
+    private static void assertReplaySolves(GameMap map, SolverResult result) throws IOException {
+        final var log = new ByteArrayOutputStream();
+        ReplayInputEngine.writeBinary(result.moves(), log);
+        final var game = new ReplaySokobanGame(
+            new GameState(map),
+            new ReplayInputEngine(new ByteArrayInputStream(log.toByteArray())),
+            null,
+            ReplaySokobanGame.UNTIL_END
+        );
+        game.run();
+        assertTrue(game.isSolved());
+        assertEquals(0, game.getFailedSteps());
+        assertEquals(result.moves().size(), game.getSteps());
+    }
+}
@@ -0,0 +1,130 @@
+package hk.ust.comp3021.tui;
+
+import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.game.RenderingEngine;
+import hk.ust.comp3021.game.Viewport;
+import hk.ust.comp3021.utils.TestHelper;
+import hk.ust.comp3021.utils.TestKind;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncRenderingEngineTest {
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testCoalesceFrames() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ########
+            #A....a#
+            #.....@#
+            ########
+            """));
+        final var recorder = new SlowRecorder();
+        final var renderingEngine = new AsyncRenderingEngine(recorder, 1000);
+
+        for (int round = 0; round < 200; round++) {
+            final int x = 1 + round % 4;
+            gameState.move(Position.of(x, 1), Position.of(x + 1, 1));
+            gameState.move(Position.of(x + 1, 1), Position.of(x, 1));
+            renderingEngine.render(gameState);
+            renderingEngine.message("round " + round);
+        }
+        renderingEngine.message("done");
+        renderingEngine.close();
+
+        final var frames = recorder.events.stream().filter(it -> it.startsWith("frame")).count();
+        assertTrue(frames >= 1 && frames < 200);
+        assertEquals("frame 1,1", recorder.events.get(recorder.events.size() - 3));
+        assertEquals("round 199", recorder.events.get(recorder.events.size() - 2));
+        assertEquals("done", recorder.events.get(recorder.events.size() - 1));
+        // Messages that are kept stay in order.
+        int lastRound = -1;
+        for (final var event : recorder.events) {
+            if (event.startsWith("round ")) {
+                final int round = Integer.parseInt(event.substring(6));
+                assertTrue(round > lastRound);
+                lastRound = round;
+            }
+        }
+        assertThrows(IllegalStateException.class, () -> renderingEngine.message("closed"));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testReplacingFrameKeepsOtherEvents() throws InterruptedException {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #A.a@#
+            ######
+            """));
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var recorder = new SlowRecorder() {
+            @Override
+            public void message(@NotNull String content) {
+                super.message(content);
+                if (content.equals("busy")) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        final var renderingEngine = new AsyncRenderingEngine(recorder, 1000);
+
+        // Keep the render thread busy while the queue fills up.
+        renderingEngine.message("busy");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        renderingEngine.message("ready");
+        renderingEngine.setViewport(new Viewport(3, 3, 0));
+        renderingEngine.render(gameState);
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        renderingEngine.render(gameState);
+        release.countDown();
+        renderingEngine.close();
+
+        assertEquals(List.of("busy", "ready", "viewport 3x3", "frame 2,1"), recorder.events);
+    }
+
+    static class SlowRecorder implements RenderingEngine {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void render(@NotNull GameState state) {
+            final var player = state.getPlayerPositionById(0);
+            events.add("frame " + player.x() + "," + player.y());
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void message(@NotNull String content) {
+            events.add(content);
+        }
+
+        @Override
+        public void setViewport(@Nullable Viewport viewport) {
+            events.add(viewport == null ? "no viewport" : "viewport " + viewport.width() + "x" + viewport.height());
+        }
+    }
+}
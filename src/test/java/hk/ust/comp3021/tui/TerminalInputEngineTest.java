@@ -1,6 +1,9 @@
 package hk.ust.comp3021.tui;
 
 import hk.ust.comp3021.actions.Exit;
+import hk.ust.comp3021.actions.InvalidInput;
+import hk.ust.comp3021.actions.Move;
+import hk.ust.comp3021.actions.Undo;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -9,6 +12,8 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TerminalInputEngineTest {
@@ -25,6 +30,45 @@ class TerminalInputEngineTest {
         assertTrue(action instanceof Exit);
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testBatchedMoves() {
+        final var inputEngine = new TerminalInputEngine(fixValueStream("wwA d\r\n3w2L u\n"));
+
+        assertTrue(inputEngine.fetchAction() instanceof Move.Up);
+        assertTrue(inputEngine.hasPendingActions());
+        assertTrue(inputEngine.fetchAction() instanceof Move.Up);
+        assertTrue(inputEngine.fetchAction() instanceof Move.Left);
+        assertTrue(inputEngine.fetchAction() instanceof Move.Right);
+        assertFalse(inputEngine.hasPendingActions());
+
+        for (int i = 0; i < 3; i++) {
+            final var action = inputEngine.fetchAction();
+            assertTrue(action instanceof Move.Up);
+            assertEquals(0, action.getInitiator());
+        }
+        for (int i = 0; i < 2; i++) {
+            final var action = inputEngine.fetchAction();
+            assertTrue(action instanceof Move.Right);
+            assertEquals(1, action.getInitiator());
+        }
+        assertTrue(inputEngine.fetchAction() instanceof Undo);
+        assertFalse(inputEngine.hasPendingActions());
+        assertTrue(inputEngine.fetchAction() instanceof Exit);
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testInvalidBatch() {
+        final var inputEngine = new TerminalInputEngine(fixValueStream("ww x\n\n3\n0w\n1001w\n2 w\nEXIT\n"));
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(inputEngine.fetchAction() instanceof InvalidInput);
+            assertFalse(inputEngine.hasPendingActions());
+        }
+        assertTrue(inputEngine.fetchAction() instanceof Exit);
+    }
+
     private InputStream fixValueStream(String content) {
         final var bytes = content.getBytes(StandardCharsets.UTF_8);
         return new ByteArrayInputStream(bytes);
@@ -1,6 +1,8 @@
 package hk.ust.comp3021.tui;
 
 import hk.ust.comp3021.game.GameState;
+import hk.ust.comp3021.game.Position;
+import hk.ust.comp3021.game.Viewport;
 import hk.ust.comp3021.utils.TestHelper;
 import hk.ust.comp3021.utils.TestKind;
 import org.junit.jupiter.api.Tag;
@@ -55,6 +57,134 @@ class TerminalRenderingEngineTest {
         assertEquals('a', lines.get(3).charAt(1));
     }
 
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testIncrementalRender() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #....#
+            #a...#
+            ######
+            """));
+        final var stream = new CapturingStream();
+        final var renderingEngine = new TerminalRenderingEngine(stream, true);
+
+        renderingEngine.render(gameState);
+        final var firstFrame = stream.getContent();
+        assertTrue(firstFrame.startsWith("\u001b[H\u001b[2J"));
+        assertTrue(firstFrame.contains("#A..@#\n"));
+
+        gameState.move(Position.of(1, 1), Position.of(2, 1));
+        renderingEngine.render(gameState);
+        assertEquals("\u001b[2;2H.\u001b[2;3HA\u001b[6;1H\u001b[J", stream.getContent().substring(firstFrame.length()));
+
+        final var secondLength = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertEquals("\u001b[6;1H\u001b[J", stream.getContent().substring(secondLength));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testIncrementalRenderRedrawsAfterResizeAndScrolling() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ######
+            #A..@#
+            #a...#
+            ######
+            """));
+        final var stream = new CapturingStream();
+        final var renderingEngine = new TerminalRenderingEngine(stream, true);
+        renderingEngine.setTerminalSize(80, 8);
+        renderingEngine.render(gameState);
+
+        // The cursor is parked on row 5, so two rows of messages still fit on the screen.
+        renderingEngine.message("first\nsecond");
+        var length = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertEquals("\u001b[5;1H\u001b[J", stream.getContent().substring(length));
+
+        renderingEngine.message("x".repeat(200));
+        length = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertEquals("\u001b[5;1H\u001b[J", stream.getContent().substring(length));
+
+        // A fourth row scrolls the screen.
+        renderingEngine.message("x".repeat(200) + "\nlast");
+        length = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertTrue(stream.getContent().substring(length).startsWith("\u001b[H\u001b[2J"));
+
+        renderingEngine.setTerminalSize(80, 8);
+        length = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertEquals("\u001b[5;1H\u001b[J", stream.getContent().substring(length));
+
+        renderingEngine.setTerminalSize(100, 30);
+        length = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertTrue(stream.getContent().substring(length).startsWith("\u001b[H\u001b[2J"));
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testViewportRender() {
+        final var gameState = new GameState(TestHelper.parseGameMap("""
+            233
+            ##########
+            #A.......#
+            #........#
+            #a......@#
+            ##########
+            """));
+        final var stream = new CapturingStream();
+        final var renderingEngine = new TerminalRenderingEngine(stream);
+        renderingEngine.setViewport(new Viewport(4, 3, 0));
+
+        renderingEngine.render(gameState);
+        assertEquals("####\n#A..\n#...\n==-- x 0-3/10 y 0-2/5 goals 0/1\n", stream.getContent());
+
+        for (int x = 1; x < 7; x++) {
+            gameState.move(Position.of(x, 1), Position.of(x + 1, 1));
+        }
+        final var before = stream.getContent().length();
+        renderingEngine.render(gameState);
+        assertEquals(
+            "####\n..A.\n....\n--== x 5-8/10 y 0-2/5 goals 0/1\n",
+            stream.getContent().substring(before)
+        );
+    }
+
+    @Tag(TestKind.PUBLIC)
+    @Test
+    void testIncrementalRenderWithWideViewport() {
+        final int width = 400;
+        final var mapText = "233\n"
+            + "#".repeat(width) + "\n"
+            + "#A" + ".".repeat(width - 3) + "#\n"
+            + "#" + "a".repeat(10) + ".".repeat(width - 22) + "@".repeat(10) + "#\n"
+            + "#" + ".".repeat(width - 2) + "#\n"
+            + "#".repeat(width) + "\n";
+        final var gameState = new GameState(TestHelper.parseGameMap(mapText));
+        final var stream = new CapturingStream();
+        final var renderingEngine = new TerminalRenderingEngine(stream, true);
+        renderingEngine.setViewport(new Viewport(300, 20, 0));
+
+        renderingEngine.render(gameState);
+        final var firstLength = stream.getContent().length();
+        for (int x = 1; x <= 10; x++) {
+            gameState.move(Position.of(x, 2), Position.of(x, 3));
+        }
+        renderingEngine.render(gameState);
+
+        final var update = stream.getContent().substring(firstLength);
+        assertTrue(update.startsWith("\u001b[3;2H.\u001b[3;3H."));
+        assertTrue(update.contains("\u001b[4;11Ha\u001b[6;1H"));
+        assertTrue(update.endsWith("goals 0/10\u001b[K\u001b[7;1H\u001b[J"));
+    }
+
     static class CapturingStream extends PrintStream {
         public CapturingStream() {
             super(new ByteArrayOutputStream());